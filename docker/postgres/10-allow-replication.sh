@@ -0,0 +1,5 @@
+#!/bin/bash
+# Разрешает потоковую репликацию (сервис postgres-replica в docker-compose.yml) по паролю
+# из сети compose. Выполняется один раз при создании кластера
+set -e
+echo "host replication all all scram-sha-256" >> "$PGDATA/pg_hba.conf"
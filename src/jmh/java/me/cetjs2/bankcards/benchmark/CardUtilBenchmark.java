@@ -0,0 +1,28 @@
+package me.cetjs2.bankcards.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.util.CardUtil;
+import org.openjdk.jmh.annotations.*;
+
+// Генерация номера: новый SecureRandom на вызов, регулярка и parseInt(substring) на цифру Луна
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardUtilBenchmark {
+
+  private final CardUtil cardUtil = new CardUtil();
+  private final String cardNumber = "4444412345678901";
+
+  @Benchmark
+  public String generateCardNumber() {
+    return cardUtil.generateCardNumber("4444 4");
+  }
+
+  @Benchmark
+  public String maskCardNumber() {
+    return cardUtil.maskCardNumber(cardNumber);
+  }
+}
@@ -0,0 +1,79 @@
+package me.cetjs2.bankcards.benchmark;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.dto.CardViewResponse;
+import me.cetjs2.bankcards.entity.Card;
+import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.util.CardUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import tools.jackson.databind.json.JsonMapper;
+
+// Путь ответа GET /cards/list: Card -> CardViewResponse и сериализация страницы в JSON
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CardViewBenchmark {
+
+  @Param({"20", "100"})
+  private int pageSize;
+
+  private final CardUtil cardUtil = new CardUtil();
+  private final JsonMapper jsonMapper = JsonMapper.builder().build();
+  private List<Card> cards;
+  private Page<CardViewResponse> page;
+
+  @Setup
+  public void setUp() {
+    User owner = User.builder().id(UUID.randomUUID()).userName("bcuser").build();
+    cards = new ArrayList<>(pageSize);
+    for (int i = 0; i < pageSize; i++) {
+      cards.add(
+          Card.builder()
+              .id(UUID.randomUUID())
+              .owner(owner)
+              .balance(new BigDecimal("1500.50"))
+              .cardStatus(CardStatus.ACTIVE)
+              .expirationDate(YearMonth.of(2030, 12))
+              .cardNumber(cardUtil.generateCardNumber("4444 4"))
+              .build());
+    }
+    page = new PageImpl<>(map(), PageRequest.of(0, pageSize), 10_000);
+  }
+
+  @Benchmark
+  public List<CardViewResponse> mapCards() {
+    return map();
+  }
+
+  @Benchmark
+  public byte[] serializePage() {
+    return jsonMapper.writeValueAsBytes(page);
+  }
+
+  private List<CardViewResponse> map() {
+    List<CardViewResponse> result = new ArrayList<>(cards.size());
+    for (Card card : cards) {
+      result.add(
+          new CardViewResponse(
+              card.getId(),
+              cardUtil.maskCardNumber(card.getCardNumber()),
+              card.getOwner().getUsername(),
+              card.getCardStatus(),
+              card.getExpirationDate(),
+              card.getBalance()));
+    }
+    return result;
+  }
+}
@@ -0,0 +1,69 @@
+package me.cetjs2.bankcards.benchmark;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
+import me.cetjs2.bankcards.security.UserCredentials;
+import me.cetjs2.bankcards.util.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+
+// Выпуск токена при логине и проверка токена в JwtAuthFilter на каждом запросе: повтор того
+// же токена отвечает из кэша проверенных токенов, первый запрос с токеном проверяет подпись
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+  private static final int TOKEN_POOL = 1024;
+
+  private JwtUtil jwtUtil;
+  private UserCredentials user;
+  private String token;
+
+  // Проверка без кэша: кэш нулевого размера и круг разных токенов, к которому токен
+  // возвращается только после TOKEN_POOL других - его запись к этому времени вытеснена
+  private JwtUtil uncachedJwtUtil;
+  private String[] freshTokens;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    jwtUtil = new JwtUtil(10_000);
+    user = new UserCredentials(UUID.randomUUID(), "bcuser", "hash", Role.USER, 0);
+    token = jwtUtil.generateToken(user, UUID.randomUUID(), Instant.now().plusSeconds(3600));
+    uncachedJwtUtil = new JwtUtil(0);
+    freshTokens = new String[TOKEN_POOL];
+    for (int i = 0; i < TOKEN_POOL; i++) {
+      freshTokens[i] =
+          jwtUtil.generateToken(user, UUID.randomUUID(), Instant.now().plusSeconds(3600));
+    }
+  }
+
+  @Benchmark
+  public String generateToken() {
+    return jwtUtil.generateToken(user, UUID.randomUUID(), Instant.now().plusSeconds(900));
+  }
+
+  @Benchmark
+  public String extractUsername() {
+    return jwtUtil.extractUsername(token);
+  }
+
+  // Полный путь фильтра: проверка токена и сборка пользователя из claims
+  @Benchmark
+  public AuthenticatedUser toPrincipal() {
+    return jwtUtil.toPrincipal(jwtUtil.validate(token));
+  }
+
+  // Тот же путь для токена, которого нет в кэше: разбор JSON и проверка подписи HMAC
+  @Benchmark
+  public AuthenticatedUser toPrincipalUncached() {
+    String fresh = freshTokens[next];
+    next = (next + 1) % TOKEN_POOL;
+    return uncachedJwtUtil.toPrincipal(uncachedJwtUtil.validate(fresh));
+  }
+}
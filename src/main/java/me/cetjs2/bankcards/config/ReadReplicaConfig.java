@@ -0,0 +1,83 @@
+package me.cetjs2.bankcards.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.boot.jdbc.autoconfigure.JdbcConnectionDetails;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+// Чтение с реплики включается заданием bankcards.datasource.replica.url. Без него Spring Boot
+// создает обычный единственный DataSource. Основной пул строится из тех же настроек
+// spring.datasource (или контейнера docker compose), что и без реплики: JdbcConnectionDetails
+// из spring.datasource автоконфигурация не создает, если DataSource объявлен здесь.
+// Пулы - отдельные бины (закрываются при остановке, видны в метриках hikaricp), но в
+// зависимости внедряется только маршрутизирующий DataSource
+@Configuration
+@ConditionalOnProperty(prefix = "bankcards.datasource.replica", name = "url")
+public class ReadReplicaConfig {
+
+  @Bean
+  public ReadYourWritesTracker readYourWritesTracker(
+      @Value("${bankcards.datasource.read-your-writes:5s}") Duration window,
+      @Value("${bankcards.datasource.read-your-writes-users:100000}") long maxUsers) {
+    return new ReadYourWritesTracker(window, maxUsers);
+  }
+
+  @Bean(defaultCandidate = false)
+  public HikariDataSource primaryDataSource(
+      ObjectProvider<JdbcConnectionDetails> connectionDetails, DataSourceProperties properties) {
+    JdbcConnectionDetails primary = connectionDetails.getIfAvailable();
+    HikariDataSource pool =
+        primary != null
+            ? DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primary.getDriverClassName())
+                .url(primary.getJdbcUrl())
+                .username(primary.getUsername())
+                .password(primary.getPassword())
+                .build()
+            : properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    pool.setPoolName("primary");
+    return pool;
+  }
+
+  @Bean(defaultCandidate = false)
+  public HikariDataSource replicaDataSource(
+      @Qualifier("primaryDataSource") HikariDataSource primary,
+      @Value("${bankcards.datasource.replica.url}") String url,
+      @Value("${bankcards.datasource.replica.username:}") String username,
+      @Value("${bankcards.datasource.replica.password:}") String password,
+      @Value("${bankcards.datasource.replica.pool-size:10}") int poolSize) {
+    // Учетные данные реплики по умолчанию те же, что у основной БД
+    HikariDataSource pool =
+        DataSourceBuilder.create()
+            .type(HikariDataSource.class)
+            .url(url)
+            .username(username.isEmpty() ? primary.getUsername() : username)
+            .password(password.isEmpty() ? primary.getPassword() : password)
+            .build();
+    pool.setPoolName("replica");
+    pool.setMaximumPoolSize(poolSize);
+    pool.setReadOnly(true);
+    return pool;
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      @Qualifier("primaryDataSource") HikariDataSource primary,
+      @Qualifier("replicaDataSource") HikariDataSource replica,
+      ReadYourWritesTracker tracker) {
+    return new LazyConnectionDataSourceProxy(
+        new ReplicaRoutingDataSource(primary, replica, tracker));
+  }
+}
@@ -0,0 +1,32 @@
+package me.cetjs2.bankcards.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+
+// Пользователи, недавно закоммитившие запись. Их read-only запросы идут в основную БД, пока
+// реплика может отставать: после перевода история и остаток сразу показывают его.
+// Окно на узел: запрос на другом узле окна не видит
+public class ReadYourWritesTracker {
+
+  private final Cache<String, Boolean> recentWriters;
+
+  public ReadYourWritesTracker(Duration window, long maxUsers) {
+    this.recentWriters =
+        window.isZero()
+            ? null
+            : Caffeine.newBuilder().maximumSize(maxUsers).expireAfterWrite(window).build();
+  }
+
+  public void recordWrite(String username) {
+    if (recentWriters != null && username != null) {
+      recentWriters.put(username, Boolean.TRUE);
+    }
+  }
+
+  public boolean isSticky(String username) {
+    return recentWriters != null
+        && username != null
+        && recentWriters.getIfPresent(username) != null;
+  }
+}
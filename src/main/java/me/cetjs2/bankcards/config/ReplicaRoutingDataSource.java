@@ -0,0 +1,56 @@
+package me.cetjs2.bankcards.config;
+
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Выбор пула на каждое соединение: @Transactional(readOnly = true) - реплика, остальное
+// (переводы, блокировки, миграции, работа без транзакции) - основная БД.
+// Работает только за LazyConnectionDataSourceProxy: соединение берется на первом запросе,
+// когда признак readOnly транзакции уже выставлен
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+  enum Target {
+    PRIMARY,
+    REPLICA
+  }
+
+  private final ReadYourWritesTracker tracker;
+
+  public ReplicaRoutingDataSource(
+      DataSource primary, DataSource replica, ReadYourWritesTracker tracker) {
+    this.tracker = tracker;
+    setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+    setDefaultTargetDataSource(primary);
+    afterPropertiesSet();
+  }
+
+  @Override
+  protected Target determineCurrentLookupKey() {
+    String username = currentUsername();
+    if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return tracker.isSticky(username) ? Target.PRIMARY : Target.REPLICA;
+    }
+    // Пишущая транзакция: после коммита чтения этого пользователя на время окна
+    // остаются на основной БД
+    if (username != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              tracker.recordWrite(username);
+            }
+          });
+    }
+    return Target.PRIMARY;
+  }
+
+  private static String currentUsername() {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null ? authentication.getName() : null;
+  }
+}
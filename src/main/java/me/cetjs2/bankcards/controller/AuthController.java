@@ -9,13 +9,18 @@ import jakarta.validation.Valid;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import me.cetjs2.bankcards.dto.AuthRequest;
+import me.cetjs2.bankcards.dto.AuthTokensResponse;
 import me.cetjs2.bankcards.dto.ErrorResponse;
-import me.cetjs2.bankcards.util.JwtUtil;
+import me.cetjs2.bankcards.dto.RefreshTokenRequest;
+import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.security.UserCredentials;
+import me.cetjs2.bankcards.service.AuthTokenService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -26,32 +31,76 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/auth")
 @Tag(name = "Аутентификация", description = "Методы для получения доступа к системе")
 public class AuthController {
-  private final JwtUtil jwtUtil;
+  private final AuthTokenService authTokenService;
   private final AuthenticationManager authenticationManager;
 
   @Operation(
       summary = "Вход в систему",
-      description = "Проверяет логин/пароль и возвращает JWT-токен для доступа к защищенным API",
+      description =
+          "Проверяет логин/пароль и возвращает короткоживущий JWT-токен для доступа к"
+              + " защищенным API и refresh-токен для его продления",
       security = {})
   @ApiResponse(
       responseCode = "200",
       description = "Успешная авторизация",
-      content = @Content(schema = @Schema(example = "{\"token\": \"eyJhbGci...\"}")))
+      content = @Content(schema = @Schema(implementation = AuthTokensResponse.class)))
   @ApiResponse(
       responseCode = "401",
       description = "Неверный логин или пароль",
       content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
   @PostMapping("/login")
-  public ResponseEntity<Map<String, String>> login(@Valid @RequestBody AuthRequest request) {
+  public ResponseEntity<?> login(@Valid @RequestBody AuthRequest request) {
     try {
-      authenticationManager.authenticate(
-          new UsernamePasswordAuthenticationToken(request.username(), request.password()));
+      Authentication authentication =
+          authenticationManager.authenticate(
+              new UsernamePasswordAuthenticationToken(request.username(), request.password()));
 
-      String token = jwtUtil.generateToken(request.username());
-      return ResponseEntity.ok(Map.of("token", token));
+      // Пользователь уже загружен провайдером при проверке пароля: id, роль и версия
+      // токенов уходят в claims
+      return ResponseEntity.ok(
+          authTokenService.issue((UserCredentials) authentication.getPrincipal()));
     } catch (BadCredentialsException e) {
       return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
           .body(Map.of("message", "Invalid username or password"));
     }
   }
+
+  @Operation(
+      summary = "Продление доступа",
+      description =
+          "Обменивает refresh-токен на новую пару токенов. Refresh-токен одноразовый:"
+              + " повторное предъявление отзывает все токены этого входа",
+      security = {})
+  @ApiResponse(
+      responseCode = "401",
+      description = "Refresh-токен неизвестен, истек или уже использован",
+      content = @Content(schema = @Schema(implementation = ErrorResponse.class)))
+  @PostMapping("/refresh")
+  public ResponseEntity<AuthTokensResponse> refresh(
+      @Valid @RequestBody RefreshTokenRequest request) {
+    return ResponseEntity.ok(authTokenService.refresh(request.refreshToken()));
+  }
+
+  @Operation(
+      summary = "Выход",
+      description = "Отзывает refresh-токен и выданные с ним access-токены",
+      security = {})
+  @PostMapping("/logout")
+  public ResponseEntity<SucessActionResponse> logout(
+      @Valid @RequestBody RefreshTokenRequest request) {
+    authTokenService.logout(request.refreshToken());
+    return ResponseEntity.ok(new SucessActionResponse("Выход выполнен"));
+  }
+
+  @Operation(
+      summary = "Выход на всех устройствах",
+      description =
+          "По refresh-токену любого из входов отзывает все access- и refresh-токены пользователя",
+      security = {})
+  @PostMapping("/logout-all")
+  public ResponseEntity<SucessActionResponse> logoutAll(
+      @Valid @RequestBody RefreshTokenRequest request) {
+    authTokenService.logoutAll(request.refreshToken());
+    return ResponseEntity.ok(new SucessActionResponse("Выход выполнен на всех устройствах"));
+  }
 }
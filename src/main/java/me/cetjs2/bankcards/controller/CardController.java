@@ -4,14 +4,23 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import me.cetjs2.bankcards.dto.*;
 import me.cetjs2.bankcards.service.*;
+import me.cetjs2.bankcards.util.CardExpiryScheduler;
+import me.cetjs2.bankcards.util.ETags;
 import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -28,6 +37,9 @@ public class CardController {
   private final CardService cardService;
   private final BlockRequestService blockRequestService;
   private final TransferService transferService;
+  private final AsyncTransferService asyncTransferService;
+  private final CardExportService cardExportService;
+  private final JobLeaseService jobLeaseService;
 
   @Operation(
       summary = "Выпуск новой карты (Админ)",
@@ -41,11 +53,16 @@ public class CardController {
     return ResponseEntity.created(location).body(newCard);
   }
 
-  @Operation(summary = "Данные о карте")
+  @Operation(
+      summary = "Данные о карте",
+      description =
+          "Ответ с ETag: запрос с тем же If-None-Match получает 304, пока карта не менялась")
   @GetMapping("/view/{id}")
   public ResponseEntity<CardViewResponse> getCardInfo(
       @Parameter(description = "ID карты") @PathVariable UUID id) {
-    return ResponseEntity.ok(cardService.getCardInfo(id));
+    // Совпавший If-None-Match Spring превращает в 304 без тела, body не сериализуется
+    var card = cardService.getCardInfo(id);
+    return ResponseEntity.ok().eTag(card.etag()).body(card.body());
   }
 
   @Operation(summary = "Заблокировать карту (Админ)")
@@ -55,6 +72,18 @@ public class CardController {
     return ResponseEntity.ok(cardService.blockCard(id));
   }
 
+  @Operation(
+      summary = "Разбить остаток карты на полосы (Админ)",
+      description =
+          "Для карт с тысячами зачислений в минуту: зачисления расходятся по N строкам"
+              + " вместо одной. Остаток по-прежнему показывается суммарным")
+  @PreAuthorize("hasRole('ADMIN')")
+  @PatchMapping("/striping/{id}")
+  public ResponseEntity<SucessActionResponse> setStriping(
+      @PathVariable UUID id, @Valid @RequestBody CardStripingRequest request) {
+    return ResponseEntity.ok(cardService.setStriping(id, request.stripes()));
+  }
+
   @Operation(summary = "Удалить карту (Админ)")
   @PreAuthorize("hasRole('ADMIN')")
   @DeleteMapping("/delete/{id}")
@@ -64,7 +93,9 @@ public class CardController {
 
   @Operation(
       summary = "Список доступных карт",
-      description = "Админ видит всех или фильтрует по пользователю. Юзер видит только свои.")
+      description =
+          "Админ видит всех или фильтрует по пользователю. Юзер видит только свои."
+              + " Неизменившаяся страница при If-None-Match - 304 без тела")
   @GetMapping("/list")
   public ResponseEntity<Page<CardViewResponse>> getAll(
       @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails,
@@ -73,8 +104,93 @@ public class CardController {
       @ParameterObject Pageable pageable) {
     boolean isAdmin =
         userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    var page = cardService.getAllAvailableCards(userDetails.getUsername(), user, isAdmin, pageable);
+    return ResponseEntity.ok()
+        .eTag(
+            ETags.of(page.getNumber(), page.getSize(), page.getTotalElements(), page.getContent()))
+        .body(page);
+  }
+
+  @Operation(
+      summary = "Список доступных карт (курсор)",
+      description =
+          "Тот же список без подсчета страниц: первая страница - пустой cursor, следующая -"
+              + " cursor из nextCursor предыдущего ответа с тем же orderBy."
+              + " Глубокие страницы отдаются так же быстро, как первая")
+  @GetMapping(value = "/list", params = "cursor")
+  public ResponseEntity<CardListResponse> getAllByCursor(
+      @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails,
+      @Parameter(description = "Логин (только для админа)") @RequestParam(required = false)
+          String user,
+      @Parameter(description = "Курсор страницы (nextCursor предыдущего ответа)")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(description = "Порядок списка") @RequestParam(defaultValue = "ID")
+          CardListOrder orderBy,
+      @Parameter(description = "Размер страницы")
+          @RequestParam(defaultValue = "20")
+          @Min(1)
+          @Max(100)
+          int size) {
+    boolean isAdmin =
+        userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    var list =
+        cardService.getCardsByCursor(
+            userDetails.getUsername(), user, isAdmin, orderBy, cursor, size);
+    return ResponseEntity.ok().eTag(ETags.of(list)).body(list);
+  }
+
+  @Operation(
+      summary = "Выгрузка всех карт (Админ)",
+      description =
+          "Все карты одним потоком в NDJSON или CSV, без постраничного обхода /cards/list."
+              + " Фильтр user - как у списка")
+  @PreAuthorize("hasRole('ADMIN')")
+  @GetMapping("/export")
+  public void exportCards(
+      @Parameter(description = "Логин владельца") @RequestParam(required = false) String user,
+      @Parameter(description = "Формат выгрузки") @RequestParam(defaultValue = "NDJSON")
+          CardExportFormat format,
+      HttpServletResponse response)
+      throws IOException {
+    // Ответ пишется в потоке запроса по мере чтения курсора, без буферизации целиком
+    response.setContentType(format.contentType());
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=cards." + format.extension());
+    cardExportService.export(user, format, response.getOutputStream());
+  }
+
+  @Operation(
+      summary = "Последний запуск истечения карт (Админ)",
+      description = "Окно, узел, длительность и число карт, переведенных в EXPIRED")
+  @PreAuthorize("hasRole('ADMIN')")
+  @GetMapping("/expiry/last-run")
+  public ResponseEntity<JobRunResponse> getExpiryLastRun() {
+    return ResponseEntity.ok(jobLeaseService.getLastRun(CardExpiryScheduler.JOB));
+  }
+
+  @Operation(
+      summary = "История переводов карты",
+      description =
+          "Выполненные переводы, новые сверху. Следующая страница - параметр cursor"
+              + " из nextCursor предыдущего ответа. Юзер видит только свои карты")
+  @GetMapping("/{id}/transfers")
+  public ResponseEntity<TransferHistoryResponse> getCardTransfers(
+      @Parameter(hidden = true) @AuthenticationPrincipal UserDetails userDetails,
+      @Parameter(description = "ID карты") @PathVariable UUID id,
+      @Parameter(description = "Курсор страницы (nextCursor предыдущего ответа)")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(description = "Размер страницы")
+          @RequestParam(defaultValue = "20")
+          @Min(1)
+          @Max(100)
+          int size) {
+    boolean isAdmin =
+        userDetails.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
     return ResponseEntity.ok(
-        cardService.getAllAvailableCards(userDetails.getUsername(), user, isAdmin, pageable));
+        transferService.getCardTransfers(id, cursor, size, userDetails.getUsername(), isAdmin));
   }
 
   @Operation(
@@ -88,7 +204,50 @@ public class CardController {
   @Operation(summary = "Перевод денег", description = "Между картами текущего пользователя")
   @PostMapping("/transfer")
   public ResponseEntity<SucessActionResponse> transfer(
+      @Parameter(description = "Ключ идемпотентности: повтор с тем же ключом вернет первый ответ")
+          @RequestHeader(value = "Idempotency-Key", required = false)
+          @Size(max = 255)
+          String idempotencyKey,
       @Valid @RequestBody TransferRequest transferRequest) {
-    return ResponseEntity.ok(transferService.transferMoney(transferRequest));
+    return ResponseEntity.ok(transferService.transferMoney(transferRequest, idempotencyKey));
+  }
+
+  @Operation(
+      summary = "Асинхронный перевод денег",
+      description =
+          "Перевод принимается в очередь и выполняется в фоне по тем же правилам."
+              + " Состояние - GET /cards/transfer/{id}. При переполненной очереди - 429")
+  @PostMapping(value = "/transfer", params = "async=true")
+  public ResponseEntity<TransferStatusResponse> transferAsync(
+      @Parameter(
+              description =
+                  "Ключ идемпотентности: повтор с тем же ключом вернет уже принятый перевод")
+          @RequestHeader(value = "Idempotency-Key", required = false)
+          @Size(max = 255)
+          String idempotencyKey,
+      @Valid @RequestBody TransferRequest transferRequest,
+      UriComponentsBuilder ucb) {
+    var accepted = asyncTransferService.submit(transferRequest, idempotencyKey);
+    var location = ucb.path("/cards/transfer/{id}").buildAndExpand(accepted.id()).toUri();
+    return ResponseEntity.accepted().location(location).body(accepted);
+  }
+
+  @Operation(summary = "Состояние асинхронного перевода", description = "Только свои переводы")
+  @GetMapping("/transfer/{id}")
+  public ResponseEntity<TransferStatusResponse> getTransferStatus(
+      @Parameter(description = "ID перевода") @PathVariable UUID id) {
+    return ResponseEntity.ok(asyncTransferService.getStatus(id));
+  }
+
+  @Operation(
+      summary = "Пакетный перевод денег",
+      description =
+          "Много переводов между картами текущего пользователя в одной транзакции."
+              + " ALL_OR_NOTHING откатывает весь пакет при первой ошибке,"
+              + " BEST_EFFORT применяет выполнимые переводы и отклоняет остальные")
+  @PostMapping("/transfer/batch")
+  public ResponseEntity<BatchTransferResponse> transferBatch(
+      @Valid @RequestBody BatchTransferRequest batchTransferRequest) {
+    return ResponseEntity.ok(transferService.transferBatch(batchTransferRequest));
   }
 }
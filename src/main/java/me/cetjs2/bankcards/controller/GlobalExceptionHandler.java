@@ -6,8 +6,15 @@ import java.util.Map;
 import me.cetjs2.bankcards.dto.ErrorResponse;
 import me.cetjs2.bankcards.exception.CardNotFoundException;
 import me.cetjs2.bankcards.exception.CardPermissionDeniedException;
+import me.cetjs2.bankcards.exception.IdempotencyKeyConflictException;
 import me.cetjs2.bankcards.exception.InsufficientFundsException;
+import me.cetjs2.bankcards.exception.InvalidCursorException;
+import me.cetjs2.bankcards.exception.InvalidRefreshTokenException;
+import me.cetjs2.bankcards.exception.LoginThrottledException;
+import me.cetjs2.bankcards.exception.TransferNotFoundException;
+import me.cetjs2.bankcards.exception.TransferQueueFullException;
 import me.cetjs2.bankcards.exception.UsernameNotFoundException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -16,7 +23,11 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
-  @ExceptionHandler({UsernameNotFoundException.class, CardNotFoundException.class})
+  @ExceptionHandler({
+    UsernameNotFoundException.class,
+    CardNotFoundException.class,
+    TransferNotFoundException.class
+  })
   public ResponseEntity<ErrorResponse> handleNotFound(Exception ex) {
     var error =
         new ErrorResponse(HttpStatus.NOT_FOUND.value(), ex.getMessage(), LocalDateTime.now());
@@ -41,11 +52,39 @@ public class GlobalExceptionHandler {
     return ResponseEntity.status(HttpStatus.FORBIDDEN).body(error);
   }
 
-  // Обработка ошибки "недостаточно средств"
-  @ExceptionHandler(InsufficientFundsException.class)
-  public ResponseEntity<ErrorResponse> handleFunds(InsufficientFundsException ex) {
+  // Обработка ошибки "недостаточно средств" и испорченного курсора страницы
+  @ExceptionHandler({InsufficientFundsException.class, InvalidCursorException.class})
+  public ResponseEntity<ErrorResponse> handleFunds(RuntimeException ex) {
     var error =
         new ErrorResponse(HttpStatus.BAD_REQUEST.value(), ex.getMessage(), LocalDateTime.now());
     return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
   }
+
+  // Повтор Idempotency-Key с другим телом запроса или пока оригинал еще выполняется
+  @ExceptionHandler(IdempotencyKeyConflictException.class)
+  public ResponseEntity<ErrorResponse> handleIdempotencyConflict(
+      IdempotencyKeyConflictException ex) {
+    var error =
+        new ErrorResponse(HttpStatus.CONFLICT.value(), ex.getMessage(), LocalDateTime.now());
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+  }
+
+  // Refresh-токен неизвестен, истек или уже обменян: нужен новый логин
+  @ExceptionHandler(InvalidRefreshTokenException.class)
+  public ResponseEntity<ErrorResponse> handleInvalidRefreshToken(InvalidRefreshTokenException ex) {
+    var error =
+        new ErrorResponse(HttpStatus.UNAUTHORIZED.value(), ex.getMessage(), LocalDateTime.now());
+    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(error);
+  }
+
+  // Очередь асинхронных переводов или проверки паролей переполнена: клиент повторяет позже
+  @ExceptionHandler({TransferQueueFullException.class, LoginThrottledException.class})
+  public ResponseEntity<ErrorResponse> handleQueueFull(RuntimeException ex) {
+    var error =
+        new ErrorResponse(
+            HttpStatus.TOO_MANY_REQUESTS.value(), ex.getMessage(), LocalDateTime.now());
+    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+        .header(HttpHeaders.RETRY_AFTER, "1")
+        .body(error);
+  }
 }
@@ -0,0 +1,11 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Пара токенов: короткоживущий access и одноразовый refresh")
+public record AuthTokensResponse(
+    @Schema(description = "JWT для заголовка Authorization", example = "eyJhbGci...") String token,
+    @Schema(description = "Одноразовый токен для /auth/refresh, после обмена недействителен")
+        String refreshToken,
+    @Schema(description = "Время жизни access-токена в секундах", example = "900")
+        long expiresIn) {}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Режим применения пакета переводов")
+public enum BatchTransferMode {
+  @Schema(description = "Пакет применяется целиком или не применяется вовсе")
+  ALL_OR_NOTHING,
+
+  @Schema(description = "Применяются все выполнимые переводы, остальные отклоняются")
+  BEST_EFFORT
+}
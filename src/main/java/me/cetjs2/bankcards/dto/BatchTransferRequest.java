@@ -0,0 +1,24 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+@Schema(description = "Пакет переводов между картами текущего пользователя")
+public record BatchTransferRequest(
+    @Schema(description = "Переводы в порядке применения")
+        @NotEmpty(message = "Пакет переводов не может быть пустым")
+        @Size(max = 1000, message = "Пакет не может содержать больше 1000 переводов")
+        List<@Valid @NotNull TransferRequest> transfers,
+    @Schema(description = "Режим применения (по умолчанию ALL_OR_NOTHING)", example = "BEST_EFFORT")
+        BatchTransferMode mode) {
+
+  public BatchTransferRequest {
+    if (mode == null) {
+      mode = BatchTransferMode.ALL_OR_NOTHING;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "Итог применения пакета переводов")
+public record BatchTransferResponse(
+    @Schema(description = "Количество выполненных переводов", example = "98") int applied,
+    @Schema(description = "Количество отклоненных переводов", example = "2") int rejected,
+    @Schema(description = "Результаты по каждому переводу в порядке запроса")
+        List<TransferItemResult> results) {}
@@ -0,0 +1,28 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Формат выгрузки карт")
+public enum CardExportFormat {
+  @Schema(description = "Одна карта - один JSON-объект в строке (application/x-ndjson)")
+  NDJSON("application/x-ndjson", "ndjson"),
+
+  @Schema(description = "CSV с заголовком (text/csv)")
+  CSV("text/csv", "csv");
+
+  private final String contentType;
+  private final String extension;
+
+  CardExportFormat(String contentType, String extension) {
+    this.contentType = contentType;
+    this.extension = extension;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  public String extension() {
+    return extension;
+  }
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Порядок списка карт в режиме курсора")
+public enum CardListOrder {
+  @Schema(description = "По id карты")
+  ID,
+
+  @Schema(description = "По дате истечения срока, при равенстве - по id")
+  EXPIRATION_DATE
+}
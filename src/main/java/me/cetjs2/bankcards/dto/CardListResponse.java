@@ -0,0 +1,10 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+@Schema(description = "Страница списка карт в режиме курсора")
+public record CardListResponse(
+    @Schema(description = "Карты страницы") List<CardViewResponse> items,
+    @Schema(description = "Курсор следующей страницы, null - страниц больше нет")
+        String nextCursor) {}
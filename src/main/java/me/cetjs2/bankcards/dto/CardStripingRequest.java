@@ -0,0 +1,15 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+@Schema(description = "Настройка разбиения остатка карты на полосы для частых зачислений")
+public record CardStripingRequest(
+    @Schema(
+            description =
+                "Число полос: зачисления расходятся по ним случайно. 0 - выключить разбиение",
+            example = "16")
+        @Min(value = 0, message = "Число полос не может быть отрицательным")
+        @Max(value = 64, message = "Не больше 64 полос на карту")
+        int stripes) {}
@@ -20,4 +20,13 @@ public record CardViewResponse(
     @Schema(description = "Дата истечения срока действия", example = "12/28", type = "string")
         @JsonFormat(pattern = "MM/yy")
         YearMonth expirationDate,
-    @Schema(description = "Текущий баланс", example = "1500.50") BigDecimal balance) {}
+    @Schema(description = "Текущий баланс", example = "1500.50") BigDecimal balance) {
+
+  // Во все ответы (просмотр, списки, выгрузка) попадает действующий статус: карта с истекшим
+  // сроком показывается EXPIRED и до ночного обновления строки
+  public CardViewResponse {
+    if (cardStatus != null) {
+      cardStatus = cardStatus.effectiveAt(expirationDate, YearMonth.now());
+    }
+  }
+}
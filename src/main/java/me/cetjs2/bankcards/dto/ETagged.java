@@ -0,0 +1,4 @@
+package me.cetjs2.bankcards.dto;
+
+// Ответ вместе с его ETag: контроллер отдает 304, не сериализуя body
+public record ETagged<T>(T body, String etag) {}
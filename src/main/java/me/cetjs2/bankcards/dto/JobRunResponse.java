@@ -0,0 +1,16 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.LocalDateTime;
+
+@Schema(description = "Последний запуск фоновой задачи")
+public record JobRunResponse(
+    @Schema(description = "Задача", example = "card-expiry") String job,
+    @Schema(description = "Окно запуска", example = "2026-10") String window,
+    @Schema(description = "Узел, выполнявший окно последним") String node,
+    @Schema(description = "Окно выполняется прямо сейчас") boolean running,
+    @Schema(description = "Начало окна") LocalDateTime startedDate,
+    @Schema(description = "Окончание окна, null - не завершено") LocalDateTime finishedDate,
+    @Schema(description = "Длительность в миллисекундах, null - не завершено", example = "1520")
+        Long durationMillis,
+    @Schema(description = "Затронуто строк", example = "12000") long rowsAffected) {}
@@ -0,0 +1,10 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+
+@Schema(description = "Refresh-токен для обмена или выхода")
+public record RefreshTokenRequest(
+    @Schema(description = "Refresh-токен из ответа /auth/login или /auth/refresh")
+        @NotBlank(message = "Refresh-токен не может быть пустым")
+        String refreshToken) {}
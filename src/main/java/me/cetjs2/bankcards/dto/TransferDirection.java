@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Направление перевода относительно карты")
+public enum TransferDirection {
+  @Schema(description = "Списание с карты")
+  OUTGOING,
+
+  @Schema(description = "Зачисление на карту")
+  INCOMING
+}
@@ -0,0 +1,18 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Schema(description = "Выполненный перевод в истории карты")
+public record TransferHistoryItem(
+    @Schema(description = "ID перевода") UUID id,
+    @Schema(description = "Направление относительно карты", example = "OUTGOING")
+        TransferDirection direction,
+    @Schema(description = "Маскированный номер карты отправителя", example = "**** **** **** 1234")
+        String fromCardNumber,
+    @Schema(description = "Маскированный номер карты получателя", example = "**** **** **** 5678")
+        String toCardNumber,
+    @Schema(description = "Сумма перевода", example = "500.00") BigDecimal sum,
+    @Schema(description = "Время перевода") LocalDateTime createdDate) {}
@@ -0,0 +1,9 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Результат перевода из пакета")
+public record TransferItemResult(
+    @Schema(description = "Порядковый номер перевода в пакете (с нуля)", example = "0") int index,
+    @Schema(description = "Статус перевода", example = "APPLIED") TransferItemStatus status,
+    @Schema(description = "Пояснение", example = "Недостаточно средств") String message) {}
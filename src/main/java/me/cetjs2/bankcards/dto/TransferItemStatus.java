@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Результат отдельного перевода в пакете")
+public enum TransferItemStatus {
+  @Schema(description = "Перевод выполнен")
+  APPLIED,
+
+  @Schema(description = "Перевод отклонен")
+  REJECTED
+}
@@ -0,0 +1,18 @@
+package me.cetjs2.bankcards.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.TransferStatus;
+
+@Schema(description = "Состояние перевода, принятого на асинхронное выполнение")
+public record TransferStatusResponse(
+    @Schema(description = "ID перевода", example = "0192b3c4-d5e6-7f80-9a1b-2c3d4e5f6a7b") UUID id,
+    @Schema(description = "Статус перевода", example = "PENDING") TransferStatus status,
+    @Schema(description = "ID карты отправителя") UUID fromCardId,
+    @Schema(description = "ID карты получателя") UUID toCardId,
+    @Schema(description = "Сумма перевода", example = "500.00") BigDecimal sum,
+    @Schema(description = "Результат: сообщение об успехе или причина отказа") String message,
+    @Schema(description = "Когда перевод принят") LocalDateTime createdDate,
+    @Schema(description = "Когда перевод выполнен или отклонен") LocalDateTime completedDate) {}
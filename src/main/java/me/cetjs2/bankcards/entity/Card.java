@@ -39,4 +39,13 @@ public class Card {
 
   @Column(name = "card_number", nullable = false, unique = true)
   private String cardNumber;
+
+  // Число строк card_balance_stripes, 0 = остаток только в снимке и журнале
+  @Column(name = "stripe_count", nullable = false)
+  private int stripeCount;
+
+  // Статус для проверок операций: срок сверяется с текущим месяцем, а не ждет CardExpiryScheduler
+  public CardStatus getEffectiveStatus() {
+    return cardStatus == null ? null : cardStatus.effectiveAt(expirationDate, YearMonth.now());
+  }
 }
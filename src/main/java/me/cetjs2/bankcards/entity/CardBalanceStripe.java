@@ -0,0 +1,38 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.UUID;
+import lombok.*;
+
+// Часть остатка "полосатой" карты. Строки меняются только нативными запросами
+@Entity
+@Table(name = "card_balance_stripes")
+@IdClass(CardBalanceStripe.Key.class)
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CardBalanceStripe {
+
+  @Id
+  @Column(name = "card_id", nullable = false)
+  private UUID cardId;
+
+  @Id
+  @Column(name = "stripe_no", nullable = false)
+  private int stripeNo;
+
+  @Column(precision = 19, scale = 2, nullable = false)
+  private BigDecimal balance;
+
+  @Getter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @EqualsAndHashCode
+  public static class Key implements Serializable {
+    private UUID cardId;
+    private int stripeNo;
+  }
+}
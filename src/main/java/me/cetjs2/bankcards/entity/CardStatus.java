@@ -1,6 +1,7 @@
 package me.cetjs2.bankcards.entity;
 
 import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.YearMonth;
 
 @Schema(description = "Статус банковской карты")
 public enum CardStatus {
@@ -11,5 +12,13 @@ public enum CardStatus {
   BLOCKED,
 
   @Schema(description = "Срок действия карты истек")
-  EXPIRED
+  EXPIRED;
+
+  // Действующий статус: ACTIVE с истекшим сроком - уже EXPIRED, даже если ночная задача
+  // еще не записала это в БД. Карта действует до конца месяца expirationDate
+  public CardStatus effectiveAt(YearMonth expirationDate, YearMonth month) {
+    return this == ACTIVE && expirationDate != null && expirationDate.isBefore(month)
+        ? EXPIRED
+        : this;
+  }
 }
@@ -0,0 +1,42 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+  @Id
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.TIME)
+  @Column(name = "id", updatable = false, nullable = false)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false, updatable = false)
+  private UUID userId;
+
+  @Column(name = "idempotency_key", nullable = false, updatable = false)
+  private String idempotencyKey;
+
+  // Канонический вид запроса: повтор ключа с другим телом запроса отклоняется
+  @Column(name = "request_fingerprint", nullable = false, updatable = false)
+  private String requestFingerprint;
+
+  @Column(name = "response_message")
+  private String responseMessage;
+
+  // Перевод, принятый в очередь (POST /cards/transfer?async=true)
+  @Column(name = "transfer_id")
+  private UUID transferId;
+
+  @Column(name = "created_date", nullable = false, updatable = false)
+  private LocalDateTime createdDate;
+}
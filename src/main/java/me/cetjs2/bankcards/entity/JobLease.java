@@ -0,0 +1,49 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import lombok.*;
+
+// Аренда фоновой задачи и состояние ее последнего окна. Меняется только запросами
+// JobLeaseRepository, сущность - для чтения
+@Entity
+@Table(name = "job_leases")
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobLease {
+
+  @Id
+  @Column(name = "name", updatable = false, nullable = false)
+  private String name;
+
+  // Узел, выполняющий окно, и до какого момента аренда за ним
+  @Column(name = "lease_owner")
+  private String leaseOwner;
+
+  @Column(name = "lease_until")
+  private LocalDateTime leaseUntil;
+
+  // Окно запуска (для истечения карт - месяц): выполненное окно повторно не запускается
+  @Column(name = "run_window")
+  private String runWindow;
+
+  // Позиция последней закоммиченной порции окна
+  @Column(name = "checkpoint")
+  private String checkpoint;
+
+  @Column(name = "rows_affected", nullable = false)
+  private long rowsAffected;
+
+  @Column(name = "started_date")
+  private LocalDateTime startedDate;
+
+  // null - окно еще выполняется или прервано
+  @Column(name = "finished_date")
+  private LocalDateTime finishedDate;
+
+  // Последнее полностью выполненное окно, не сбрасывается при захвате следующего
+  @Column(name = "completed_window")
+  private String completedWindow;
+}
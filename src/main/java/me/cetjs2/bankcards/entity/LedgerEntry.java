@@ -0,0 +1,46 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.UuidGenerator;
+
+// Неизменяемая запись журнала. Флаг folded меняется только нативным запросом свертки
+@Entity
+@Immutable
+@Table(name = "card_ledger")
+@Getter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerEntry {
+
+  @Id
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.TIME)
+  @Column(name = "id", updatable = false, nullable = false)
+  private UUID id;
+
+  @ManyToOne(fetch = FetchType.LAZY)
+  @JoinColumn(
+      name = "card_id",
+      nullable = false,
+      foreignKey = @ForeignKey(name = "fk_cardledger_cards"))
+  private Card card;
+
+  @Column(precision = 19, scale = 2, nullable = false)
+  private BigDecimal amount;
+
+  @Column(name = "entry_type", nullable = false)
+  @Enumerated(EnumType.STRING)
+  private LedgerEntryType entryType;
+
+  @Column(name = "folded", nullable = false)
+  private boolean folded;
+
+  @Column(name = "created_date", nullable = false)
+  private LocalDateTime createdDate;
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Тип записи журнала движений по карте")
+public enum LedgerEntryType {
+  @Schema(description = "Списание")
+  DEBIT,
+
+  @Schema(description = "Зачисление")
+  CREDIT
+}
@@ -0,0 +1,52 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+@Entity
+@Table(name = "refresh_tokens")
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+
+  @Id
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.TIME)
+  @Column(name = "id", updatable = false, nullable = false)
+  private UUID id;
+
+  @Column(name = "user_id", nullable = false, updatable = false)
+  private UUID userId;
+
+  // Все токены, полученные обменами от одного логина
+  @Column(name = "family_id", nullable = false, updatable = false)
+  private UUID familyId;
+
+  // SHA-256 самого токена: утечка таблицы не дает рабочих токенов
+  @Column(name = "token_hash", nullable = false, updatable = false)
+  private String tokenHash;
+
+  // Версия токенов пользователя на момент выпуска: смена пароля или роли гасит цепочку
+  @Column(name = "token_version", nullable = false, updatable = false)
+  private int tokenVersion;
+
+  @Column(name = "access_jti", nullable = false, updatable = false)
+  private UUID accessJti;
+
+  @Column(name = "access_expires_date", nullable = false, updatable = false)
+  private LocalDateTime accessExpiresDate;
+
+  @Column(name = "expires_date", nullable = false, updatable = false)
+  private LocalDateTime expiresDate;
+
+  @Column(name = "created_date", nullable = false, updatable = false)
+  private LocalDateTime createdDate;
+
+  @Column(name = "revoked_date")
+  private LocalDateTime revokedDate;
+}
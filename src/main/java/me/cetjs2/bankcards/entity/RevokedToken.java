@@ -0,0 +1,26 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+
+@Entity
+@Table(name = "revoked_tokens")
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class RevokedToken {
+
+  // jti отозванного access-токена
+  @Id
+  @Column(name = "jti", updatable = false, nullable = false)
+  private UUID jti;
+
+  @Column(name = "expires_date", nullable = false, updatable = false)
+  private LocalDateTime expiresDate;
+
+  @Column(name = "created_date", nullable = false, updatable = false)
+  private LocalDateTime createdDate;
+}
@@ -0,0 +1,49 @@
+package me.cetjs2.bankcards.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import lombok.*;
+import org.hibernate.annotations.UuidGenerator;
+
+@Entity
+@Table(name = "transfers")
+@Getter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferRecord {
+
+  @Id
+  @GeneratedValue
+  @UuidGenerator(style = UuidGenerator.Style.TIME)
+  @Column(name = "id", updatable = false, nullable = false)
+  private UUID id;
+
+  @Column(name = "owner_id", nullable = false, updatable = false)
+  private UUID ownerId;
+
+  @Column(name = "from_card_id", nullable = false, updatable = false)
+  private UUID fromCardId;
+
+  @Column(name = "to_card_id", nullable = false, updatable = false)
+  private UUID toCardId;
+
+  @Column(precision = 19, scale = 2, nullable = false, updatable = false)
+  private BigDecimal amount;
+
+  @Column(name = "status", nullable = false)
+  @Enumerated(EnumType.STRING)
+  private TransferStatus status;
+
+  // Текст ответа: сообщение об успехе или причина отказа
+  @Column(name = "message", length = 500)
+  private String message;
+
+  @Column(name = "created_date", nullable = false, updatable = false)
+  private LocalDateTime createdDate;
+
+  @Column(name = "completed_date")
+  private LocalDateTime completedDate;
+}
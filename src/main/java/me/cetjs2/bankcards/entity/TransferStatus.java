@@ -0,0 +1,15 @@
+package me.cetjs2.bankcards.entity;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Статус перевода")
+public enum TransferStatus {
+  @Schema(description = "Перевод принят и ждет выполнения")
+  PENDING,
+
+  @Schema(description = "Перевод выполнен")
+  COMPLETED,
+
+  @Schema(description = "Перевод отклонен, деньги не списаны")
+  FAILED
+}
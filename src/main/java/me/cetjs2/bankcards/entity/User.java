@@ -1,6 +1,7 @@
 package me.cetjs2.bankcards.entity;
 
 import jakarta.persistence.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -35,6 +36,13 @@ public class User implements UserDetails {
   @Enumerated(value = EnumType.STRING)
   private Role role;
 
+  // Токены с версией ниже текущей отозваны (см. TokenVersionRegistry)
+  @Column(name = "token_version", nullable = false)
+  private int tokenVersion;
+
+  @Column(name = "token_version_date")
+  private LocalDateTime tokenVersionDate;
+
   @Builder.Default
   @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
   private List<Card> cards = new ArrayList<>();
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class IdempotencyKeyConflictException extends RuntimeException {
+
+  public IdempotencyKeyConflictException(String message) {
+    super(message);
+  }
+
+  public IdempotencyKeyConflictException() {
+    super("Idempotency-Key was already used for a different request");
+  }
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+  public InvalidCursorException(String message) {
+    super(message);
+  }
+
+  public InvalidCursorException() {
+    super("Invalid page cursor");
+  }
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class InvalidRefreshTokenException extends RuntimeException {
+
+  public InvalidRefreshTokenException(String message) {
+    super(message);
+  }
+
+  public InvalidRefreshTokenException() {
+    super("Invalid refresh token");
+  }
+}
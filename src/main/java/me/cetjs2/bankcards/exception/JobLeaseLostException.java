@@ -0,0 +1,8 @@
+package me.cetjs2.bankcards.exception;
+
+public class JobLeaseLostException extends RuntimeException {
+
+  public JobLeaseLostException(String job) {
+    super("Lease of job " + job + " was taken over by another node");
+  }
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class LoginThrottledException extends RuntimeException {
+
+  public LoginThrottledException(String message) {
+    super(message);
+  }
+
+  public LoginThrottledException() {
+    super("Too many logins in progress, retry later");
+  }
+}
@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class TransferNotFoundException extends RuntimeException {
+
+  public TransferNotFoundException(String message) {
+    super(message);
+  }
+
+  public TransferNotFoundException() {
+    super("Transfer not found");
+  }
+}
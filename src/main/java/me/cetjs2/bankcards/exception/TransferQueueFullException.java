@@ -0,0 +1,12 @@
+package me.cetjs2.bankcards.exception;
+
+public class TransferQueueFullException extends RuntimeException {
+
+  public TransferQueueFullException(String message) {
+    super(message);
+  }
+
+  public TransferQueueFullException() {
+    super("Transfer queue is full, retry later");
+  }
+}
@@ -0,0 +1,46 @@
+package me.cetjs2.bankcards.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.CardBalanceStripe;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository.PendingTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface CardBalanceStripeRepository
+    extends JpaRepository<CardBalanceStripe, CardBalanceStripe.Key> {
+
+  @Query(
+      "select s.cardId as cardId, sum(s.balance) as total from CardBalanceStripe s"
+          + " where s.cardId in :cardIds group by s.cardId")
+  List<PendingTotal> sumByCardIds(Collection<UUID> cardIds);
+
+  // Заем для списания: все полосы карты блокируются, обнуляются, а их сумма переносится в снимок.
+  // Блокируются и нулевые полосы, чтобы зачисление не проскочило между обнулением и удалением
+  @Modifying
+  @Query(
+      value =
+          "WITH o AS (SELECT stripe_no, balance FROM card_balance_stripes"
+              + " WHERE card_id = :cardId ORDER BY stripe_no FOR UPDATE),"
+              + " z AS (UPDATE card_balance_stripes s SET balance = 0 FROM o"
+              + " WHERE s.card_id = :cardId AND s.stripe_no = o.stripe_no AND o.balance <> 0"
+              + " RETURNING o.balance)"
+              + " UPDATE cards SET balance = balance + (SELECT SUM(balance) FROM z)"
+              + " WHERE id = :cardId AND EXISTS (SELECT 1 FROM z)",
+      nativeQuery = true)
+  int sweep(UUID cardId);
+
+  @Modifying
+  @Query(
+      value =
+          "INSERT INTO card_balance_stripes (card_id, stripe_no, balance)"
+              + " SELECT :cardId, g, 0 FROM generate_series(0, :count - 1) g",
+      nativeQuery = true)
+  int createStripes(UUID cardId, int count);
+
+  @Modifying
+  @Query(value = "DELETE FROM card_balance_stripes WHERE card_id = :cardId", nativeQuery = true)
+  int deleteByCardId(UUID cardId);
+}
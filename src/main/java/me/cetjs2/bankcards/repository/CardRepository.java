@@ -1,15 +1,27 @@
 package me.cetjs2.bankcards.repository;
 
+import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardViewResponse;
 import me.cetjs2.bankcards.entity.Card;
 import me.cetjs2.bankcards.entity.CardStatus;
 import me.cetjs2.bankcards.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, UUID> {
@@ -17,11 +29,147 @@ public interface CardRepository extends JpaRepository<Card, UUID> {
 
   // List<Card> findByOwnerUserName(String username);
 
-  List<Card> findAllByCardStatusAndExpirationDateBefore(CardStatus status, YearMonth date);
+  // Истечение карт порциями: следующие limit карт со статусом status и сроком до before
+  // после позиции (дата, id) последней обработанной - по индексу idx_cards_status_expiration,
+  // без повторного просмотра уже обработанных строк. Дата в кортеже - LocalDate, как в списке
+  @Query(
+      "select c.id as id, c.expirationDate as expirationDate from Card c"
+          + " where c.cardStatus = :status and c.expirationDate < :before"
+          + " and (c.expirationDate, c.id) > (:afterDate, :afterId)"
+          + " order by c.expirationDate, c.id")
+  List<ExpiryCandidate> findExpiryCandidates(
+      CardStatus status, YearMonth before, LocalDate afterDate, UUID afterId, Pageable pageable);
+
+  // Смена статуса одним UPDATE на порцию. Строки, чей статус успели сменить, не трогаются
+  @Modifying
+  @Query("update Card c set c.cardStatus = :to where c.id in :ids and c.cardStatus = :from")
+  int updateStatus(Collection<UUID> ids, CardStatus from, CardStatus to);
 
   boolean existsByIdAndOwnerUserName(UUID cardId, String userName);
 
-  Page<Card> findByOwnerUserName(String username, Pageable pageable);
+  // Представление карты для ответа одним запросом, без managed-сущностей: владелец через join,
+  // номер маскируется так же, как в CardUtil.maskCardNumber, остаток = снимок + хвост журнала
+  // + полосы (как в findCurrentBalance)
+  String CARD_VIEW_SELECT =
+      "select new me.cetjs2.bankcards.dto.CardViewResponse(c.id,"
+          + " concat('**** **** **** ', right(c.cardNumber, 4)), o.userName, c.cardStatus,"
+          + " c.expirationDate, c.balance"
+          + " + coalesce((select sum(l.amount) from LedgerEntry l"
+          + " where l.card = c and l.folded = false), 0)"
+          + " + coalesce((select sum(s.balance) from CardBalanceStripe s where s.cardId = c.id), 0))"
+          + " from Card c join c.owner o";
+
+  // Чтение только при промахе CardViewCache. Без readOnly: загрузчик кэша читает основную БД.
+  // С отстающей реплики сразу после сброса по коммиту в кэш вернулось бы старое представление
+  // с его ETag и жило бы до TTL
+  @Query(CARD_VIEW_SELECT + " where c.id = :id")
+  Optional<CardViewResponse> findViewById(UUID id);
+
+  @Query(value = CARD_VIEW_SELECT, countQuery = "select count(c) from Card c")
+  Page<CardViewResponse> findAllViews(Pageable pageable);
+
+  @Query(
+      value = CARD_VIEW_SELECT + " where o.userName = :username",
+      countQuery = "select count(c) from Card c where c.owner.userName = :username")
+  Page<CardViewResponse> findViewsByOwnerUserName(String username, Pageable pageable);
+
+  // Режим курсора: страница начинается сразу после (ключ, id) последней отданной строки.
+  // Slice читает size + 1 строк и не считает COUNT, глубина страницы на цену не влияет.
+  // Индексы под каждый порядок - миграция 20261018-08. Дата в сравнении кортежей - LocalDate
+  // (первое число месяца): конвертер YearMonth к параметрам внутри кортежа не применяется
+  // По id обходит и выгрузка /cards/export: каждая порция - своя короткая read-only транзакция
+  @Transactional(readOnly = true)
+  @Query(CARD_VIEW_SELECT + " where c.id > :afterId order by c.id")
+  Slice<CardViewResponse> findViewsAfterId(UUID afterId, Pageable pageable);
+
+  @Query(
+      CARD_VIEW_SELECT
+          + " where (c.expirationDate, c.id) > (:afterDate, :afterId)"
+          + " order by c.expirationDate, c.id")
+  Slice<CardViewResponse> findViewsAfterExpiration(
+      LocalDate afterDate, UUID afterId, Pageable pageable);
+
+  @Transactional(readOnly = true)
+  @Query(CARD_VIEW_SELECT + " where o.userName = :username and c.id > :afterId order by c.id")
+  Slice<CardViewResponse> findOwnerViewsAfterId(String username, UUID afterId, Pageable pageable);
+
+  @Query(
+      CARD_VIEW_SELECT
+          + " where o.userName = :username and (c.expirationDate, c.id) > (:afterDate, :afterId)"
+          + " order by c.expirationDate, c.id")
+  Slice<CardViewResponse> findOwnerViewsAfterExpiration(
+      String username, LocalDate afterDate, UUID afterId, Pageable pageable);
+
+  // Только номера карт, без загрузки сущностей (для текста ответа о переводе)
+  List<CardNumberView> findByIdIn(Collection<UUID> ids);
+
+  // Условное списание одним запросом: строка блокируется, проверки владельца, статуса, срока
+  // (действует с месяца monthStart) и остатка снимка выполняются атомарно, тем же запросом
+  // пишется учтенная запись журнала. 0 вставленных строк = списание отклонено
+  @Modifying
+  @Query(
+      value =
+          "WITH d AS (UPDATE cards SET balance = balance - :sum"
+              + " WHERE id = :id AND owner_id = :ownerId AND status = 'ACTIVE'"
+              + " AND expiration_date >= :monthStart AND balance >= :sum"
+              + " RETURNING id)"
+              + " INSERT INTO card_ledger (id, card_id, amount, entry_type, folded, created_date)"
+              + " SELECT uuidv7(), d.id, -:sum, 'DEBIT', true, now() FROM d",
+      nativeQuery = true)
+  int debit(UUID id, UUID ownerId, BigDecimal sum, LocalDate monthStart);
+
+  // Текущий остаток: снимок + хвост неучтенных записей журнала + полосы
+  @Query(
+      "select c.balance + coalesce((select sum(l.amount) from LedgerEntry l"
+          + " where l.card = c and l.folded = false), 0)"
+          + " + coalesce((select sum(s.balance) from CardBalanceStripe s where s.cardId = c.id), 0)"
+          + " from Card c where c.id = :id")
+  Optional<BigDecimal> findCurrentBalance(UUID id);
+
+  // Только статус: остаток и число полос меняются запросами в обход JPA (списание, свертка),
+  // сохранение сущности целиком записало бы их устаревшие значения
+  @Modifying
+  @Query("update Card c set c.cardStatus = :status where c.id = :id")
+  int updateStatus(UUID id, CardStatus status);
+
+  // Только число полос: сущность целиком не сохраняем, чтобы не затереть снимок остатка
+  @Modifying
+  @Query(value = "UPDATE cards SET stripe_count = :count WHERE id = :id", nativeQuery = true)
+  int updateStripeCount(UUID id, int count);
+
+  // Пакетные переводы: карты пользователя блокируются одним запросом в порядке id.
+  // Чужие и несуществующие карты в результат не попадают
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select c from Card c where c.id in :ids and c.owner.id = :ownerId order by c.id")
+  List<Card> findOwnedForUpdate(Collection<UUID> ids, UUID ownerId);
+
+  // Какие из карт, не вернувшихся из findOwnedForUpdate, существуют (то есть чужие):
+  // один запрос на все отсутствующие id вместо existsById на каждую
+  @Query("select c.id from Card c where c.id in :ids")
+  Set<UUID> findExistingIds(Collection<UUID> ids);
+
+  // Фоновая свертка журнала, шаг 2: карты блокируются в порядке id, как в пакетных переводах.
+  // SKIP LOCKED: карту, занятую переводом, свертка пропускает, а не ждет. Перевод, держащий
+  // карты, сам может ждать записи журнала этой свертки - ожидание в обратную сторону дало бы
+  // взаимную блокировку
+  @Query(
+      value = "SELECT id FROM cards WHERE id IN (:ids) ORDER BY id FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<UUID> lockIdsForFold(Collection<UUID> ids);
+
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select c from Card c where c.id = :id")
+  Optional<Card> findByIdForUpdate(UUID id);
+
+  interface ExpiryCandidate {
+    UUID getId();
+
+    YearMonth getExpirationDate();
+  }
+
+  interface CardNumberView {
+    UUID getId();
 
-  Page<Card> findAll(Pageable pageable);
+    String getCardNumber();
+  }
 }
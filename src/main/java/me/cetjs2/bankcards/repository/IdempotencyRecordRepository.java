@@ -0,0 +1,23 @@
+package me.cetjs2.bankcards.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, UUID> {
+
+  Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+  @Modifying
+  @Query(
+      "delete from IdempotencyRecord r where r.userId = :userId and r.idempotencyKey = :idempotencyKey")
+  int deleteByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+  @Modifying
+  @Query("delete from IdempotencyRecord r where r.createdDate < :threshold")
+  int deleteCreatedBefore(LocalDateTime threshold);
+}
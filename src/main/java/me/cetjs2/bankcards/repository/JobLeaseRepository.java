@@ -0,0 +1,47 @@
+package me.cetjs2.bankcards.repository;
+
+import java.time.LocalDateTime;
+import me.cetjs2.bankcards.entity.JobLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobLeaseRepository extends JpaRepository<JobLease, String> {
+
+  // Захват аренды, если она свободна или истекла и окно еще не выполнено.
+  // Новое окно начинается с нуля, прерванное - продолжается со своего checkpoint.
+  // 0 обновленных строк = окно выполняет (или уже выполнил) другой узел
+  @Modifying
+  @Query(
+      "update JobLease j set j.leaseOwner = :owner, j.leaseUntil = :until,"
+          + " j.checkpoint = case when j.runWindow = :window then j.checkpoint else null end,"
+          + " j.rowsAffected = case when j.runWindow = :window then j.rowsAffected else 0 end,"
+          + " j.startedDate = case when j.runWindow = :window then j.startedDate else :now end,"
+          + " j.finishedDate = null, j.runWindow = :window"
+          + " where j.name = :name and (j.leaseUntil is null or j.leaseUntil < :now)"
+          + " and (j.runWindow is null or j.runWindow <> :window or j.finishedDate is null)")
+  int acquire(String name, String window, String owner, LocalDateTime now, LocalDateTime until);
+
+  // Checkpoint порции в ее же транзакции с продлением аренды. Только владельцу:
+  // 0 строк = аренду перехватили, порцию нужно откатить
+  @Modifying
+  @Query(
+      "update JobLease j set j.checkpoint = coalesce(:checkpoint, j.checkpoint),"
+          + " j.rowsAffected = j.rowsAffected + :rows, j.leaseUntil = :until"
+          + " where j.name = :name and j.leaseOwner = :owner")
+  int checkpoint(String name, String owner, String checkpoint, long rows, LocalDateTime until);
+
+  @Modifying
+  @Query(
+      "update JobLease j set j.finishedDate = :now, j.leaseUntil = null,"
+          + " j.completedWindow = j.runWindow"
+          + " where j.name = :name and j.leaseOwner = :owner")
+  int finish(String name, String owner, LocalDateTime now);
+
+  // Прерванное окно: аренда освобождается, следующий запуск продолжит с checkpoint
+  @Modifying
+  @Query("update JobLease j set j.leaseUntil = null where j.name = :name and j.leaseOwner = :owner")
+  int release(String name, String owner);
+}
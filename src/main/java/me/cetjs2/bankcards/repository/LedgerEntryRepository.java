@@ -0,0 +1,83 @@
+package me.cetjs2.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
+
+  // Зачисление = вставка в журнал, строка карты не блокируется.
+  // Владелец, статус и срок карты-получателя проверяются тем же запросом. У "полосатой" карты сумма
+  // сразу ложится в полосу slot % stripe_count, и запись журнала пишется уже учтенной.
+  // Если полосы не нашлось (карта не полосатая или число полос меняется), запись ждет свертки
+  @Modifying
+  @Query(
+      value =
+          "WITH c AS (SELECT id, stripe_count FROM cards"
+              + " WHERE id = :cardId AND owner_id = :ownerId AND status = 'ACTIVE'"
+              + " AND expiration_date >= :monthStart),"
+              + " s AS (UPDATE card_balance_stripes bs SET balance = bs.balance + :sum FROM c"
+              + " WHERE bs.card_id = c.id AND c.stripe_count > 0"
+              + " AND bs.stripe_no = :slot % c.stripe_count RETURNING bs.card_id)"
+              + " INSERT INTO card_ledger (id, card_id, amount, entry_type, folded, created_date)"
+              + " SELECT uuidv7(), c.id, :sum, 'CREDIT', EXISTS (SELECT 1 FROM s), now() FROM c",
+      nativeQuery = true)
+  int appendCredit(UUID cardId, UUID ownerId, BigDecimal sum, int slot, LocalDate monthStart);
+
+  // Свертка неучтенных записей одной карты в снимок (перед списанием).
+  // В сумму попадают ровно те записи, которые перевел в folded этот же запрос
+  @Modifying
+  @Query(
+      value =
+          "WITH f AS (UPDATE card_ledger SET folded = true"
+              + " WHERE card_id = :cardId AND NOT folded RETURNING amount)"
+              + " UPDATE cards SET balance = balance + (SELECT SUM(amount) FROM f)"
+              + " WHERE id = :cardId AND EXISTS (SELECT 1 FROM f)",
+      nativeQuery = true)
+  int foldPending(UUID cardId);
+
+  // Фоновая свертка, шаг 1: порция самых старых неучтенных записей. SKIP LOCKED: узлы
+  // разбирают разные записи, записи, которые сейчас сворачивает списание, пропускаются
+  @Query(
+      value =
+          "SELECT id, card_id AS \"cardId\" FROM card_ledger WHERE NOT folded"
+              + " ORDER BY created_date LIMIT :limit FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  List<PendingEntry> lockOldestPending(int limit);
+
+  // Фоновая свертка, шаг 3: записи уже захвачены, строки их карт заблокированы этой же
+  // транзакцией (CardRepository.lockIdsForFold), поэтому запрос ничего не ждет
+  @Modifying
+  @Query(
+      value =
+          "WITH f AS (UPDATE card_ledger SET folded = true"
+              + " WHERE id IN (:entryIds) AND NOT folded RETURNING card_id, amount)"
+              + " UPDATE cards c SET balance = c.balance + s.total"
+              + " FROM (SELECT card_id, SUM(amount) AS total FROM f GROUP BY card_id) s"
+              + " WHERE c.id = s.card_id",
+      nativeQuery = true)
+  int foldEntries(Collection<UUID> entryIds);
+
+  @Query(
+      "select l.card.id as cardId, sum(l.amount) as total from LedgerEntry l"
+          + " where l.card.id in :cardIds and l.folded = false group by l.card.id")
+  List<PendingTotal> sumPendingByCardIds(Collection<UUID> cardIds);
+
+  interface PendingEntry {
+    UUID getId();
+
+    UUID getCardId();
+  }
+
+  interface PendingTotal {
+    UUID getCardId();
+
+    BigDecimal getTotal();
+  }
+}
@@ -0,0 +1,42 @@
+package me.cetjs2.bankcards.repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, UUID> {
+
+  Optional<RefreshToken> findByTokenHash(String tokenHash);
+
+  // Условный UPDATE: из двух параллельных обменов одного токена выигрывает один
+  @Modifying
+  @Query(
+      "update RefreshToken t set t.revokedDate = :now where t.id = :id and t.revokedDate is null")
+  int revoke(UUID id, LocalDateTime now);
+
+  // Отзыв всей цепочки вместе с еще живыми access-токенами, выпущенными в ее парах
+  @Modifying
+  @Query(
+      value =
+          """
+          WITH family AS (
+            UPDATE refresh_tokens SET revoked_date = COALESCE(revoked_date, now())
+            WHERE family_id = :familyId
+            RETURNING access_jti, access_expires_date
+          )
+          INSERT INTO revoked_tokens (jti, expires_date, created_date)
+          SELECT access_jti, access_expires_date, now() FROM family
+          WHERE access_expires_date > now()
+          ON CONFLICT (jti) DO NOTHING
+          """,
+      nativeQuery = true)
+  int revokeFamily(UUID familyId);
+
+  @Modifying
+  @Query("delete from RefreshToken t where t.expiresDate < :threshold")
+  int deleteExpiredBefore(LocalDateTime threshold);
+}
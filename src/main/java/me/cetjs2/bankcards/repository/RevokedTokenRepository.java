@@ -0,0 +1,23 @@
+package me.cetjs2.bankcards.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, UUID> {
+
+  List<RevokedToken> findByCreatedDateAfterAndExpiresDateAfter(
+      LocalDateTime since, LocalDateTime now);
+
+  // Проверка отзыва в JwtAuthFilter. Производный запрос без транзакции идет в основную БД:
+  // existsById - readOnly и читал бы отстающую реплику, пропуская только что отозванный токен
+  boolean existsByJti(UUID jti);
+
+  @Modifying
+  @Query("delete from RevokedToken t where t.expiresDate < :threshold")
+  int deleteExpiredBefore(LocalDateTime threshold);
+}
@@ -0,0 +1,63 @@
+package me.cetjs2.bankcards.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.TransferRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+public interface TransferRecordRepository extends JpaRepository<TransferRecord, UUID> {
+
+  Optional<TransferRecord> findByIdAndOwnerId(UUID id, UUID ownerId);
+
+  // Захват ожидающего перевода исполнителем. SKIP LOCKED: если тот же перевод уже выполняет
+  // другой поток или узел, запрос вернет пусто, а не будет ждать
+  @Query(
+      value =
+          "SELECT * FROM transfers WHERE id = :id AND status = 'PENDING' FOR UPDATE SKIP LOCKED",
+      nativeQuery = true)
+  Optional<TransferRecord> claimPending(UUID id);
+
+  @Query(
+      value =
+          "SELECT id FROM transfers WHERE status = 'PENDING' AND created_date < :before"
+              + " ORDER BY created_date LIMIT :limit",
+      nativeQuery = true)
+  List<UUID> findPendingIdsCreatedBefore(LocalDateTime before, int limit);
+
+  // Страница истории карты, новые сверху. Две ветки (карта - отправитель / получатель) идут
+  // каждая по своему покрывающему индексу с тем же порядком, поэтому любая страница стоит
+  // как первая: O(limit), без OFFSET. Перевод с карты на саму себя попадает только в первую ветку
+  @Query(
+      value =
+          "SELECT id, from_card_id AS \"fromCardId\", to_card_id AS \"toCardId\", amount,"
+              + " created_date AS \"createdDate\" FROM ("
+              + "(SELECT id, from_card_id, to_card_id, amount, created_date FROM transfers"
+              + " WHERE from_card_id = :cardId AND status = 'COMPLETED'"
+              + " AND (created_date, id) < (:beforeDate, :beforeId)"
+              + " ORDER BY created_date DESC, id DESC LIMIT :limit)"
+              + " UNION ALL"
+              + " (SELECT id, from_card_id, to_card_id, amount, created_date FROM transfers"
+              + " WHERE to_card_id = :cardId AND status = 'COMPLETED' AND from_card_id <> :cardId"
+              + " AND (created_date, id) < (:beforeDate, :beforeId)"
+              + " ORDER BY created_date DESC, id DESC LIMIT :limit)) t"
+              + " ORDER BY created_date DESC, id DESC LIMIT :limit",
+      nativeQuery = true)
+  List<TransferHistoryRow> findCardHistory(
+      UUID cardId, LocalDateTime beforeDate, UUID beforeId, int limit);
+
+  interface TransferHistoryRow {
+    UUID getId();
+
+    UUID getFromCardId();
+
+    UUID getToCardId();
+
+    BigDecimal getAmount();
+
+    LocalDateTime getCreatedDate();
+  }
+}
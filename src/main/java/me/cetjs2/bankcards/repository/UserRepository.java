@@ -1,10 +1,39 @@
 package me.cetjs2.bankcards.repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import me.cetjs2.bankcards.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
   Optional<User> findByUserName(String userName);
+
+  // Отзыв всех токенов пользователя. Версия растет в самом UPDATE, а не через чтение и save:
+  // параллельные отзывы не теряют инкремент. Время - для инкрементального добора версий
+  // (findTokenVersionsChangedSince)
+  @Modifying
+  @Query(
+      "update User u set u.tokenVersion = u.tokenVersion + 1,"
+          + " u.tokenVersionDate = current_timestamp where u.id = :userId")
+  int bumpTokenVersion(UUID userId);
+
+  @Query(
+      "SELECT u.id AS id, u.userName AS userName, u.tokenVersion AS tokenVersion,"
+          + " u.tokenVersionDate AS tokenVersionDate"
+          + " FROM User u WHERE u.tokenVersionDate > :since")
+  List<TokenVersionView> findTokenVersionsChangedSince(LocalDateTime since);
+
+  interface TokenVersionView {
+    UUID getId();
+
+    String getUserName();
+
+    int getTokenVersion();
+
+    LocalDateTime getTokenVersionDate();
+  }
 }
@@ -0,0 +1,34 @@
+package me.cetjs2.bankcards.security;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Пользователь запроса, собранный из claims токена без обращения к БД.
+// Для связей JPA (например, BlockRequest.approvedBy) - userRepository.getReferenceById(id())
+public record AuthenticatedUser(UUID id, String username, Role role) implements UserDetails {
+
+  public static AuthenticatedUser from(User user) {
+    return new AuthenticatedUser(user.getId(), user.getUsername(), user.getRole());
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+  }
+
+  @Override
+  public String getPassword() {
+    return null;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+}
@@ -1,26 +1,66 @@
 package me.cetjs2.bankcards.security;
 
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
 import me.cetjs2.bankcards.repository.UserRepository;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
   private final UserRepository userRepository;
 
+  // Снимки пользователей по логину. TTL ограничивает устаревание на других узлах,
+  // на своем узле изменения сбрасываются сразу через UserCredentialsChangedEvent.
+  // Метрики: cache.gets{cache=users,result=hit|miss}, cache.evictions, cache.size
+  private final Cache<String, UserCredentials> users;
+
+  public CustomUserDetailsService(
+      UserRepository userRepository,
+      MeterRegistry meterRegistry,
+      @Value("${bankcards.auth.user-cache-size:10000}") long cacheSize,
+      @Value("${bankcards.auth.user-cache-ttl:5m}") Duration cacheTtl) {
+    this.userRepository = userRepository;
+    this.users =
+        Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
+  }
+
+  // Используется только при логине: запросы с токеном берут пользователя из claims
   @Override
-  public UserDetails loadUserByUsername(String userName) throws UsernameNotFoundException {
-    var user =
+  public UserCredentials loadUserByUsername(String userName) throws UsernameNotFoundException {
+    UserCredentials cached = users.getIfPresent(userName);
+    if (cached != null) {
+      return cached;
+    }
+    // Неизвестные логины не кэшируем: перебор логинов не должен вытеснять настоящих пользователей
+    UserCredentials loaded =
         userRepository
             .findByUserName(userName)
+            .map(UserCredentials::from)
             .orElseThrow(
                 () -> new UsernameNotFoundException("Пользователь не найден: " + userName));
-    System.out.println("Password from DB: " + user.getPassword());
-    return user;
+    users.put(userName, loaded);
+    return loaded;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCredentialsChanged(UserCredentialsChangedEvent event) {
+    evict(event.username());
+  }
+
+  public void evict(String username) {
+    users.invalidate(username);
   }
 }
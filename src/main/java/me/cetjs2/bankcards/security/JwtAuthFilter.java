@@ -1,16 +1,16 @@
 package me.cetjs2.bankcards.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import me.cetjs2.bankcards.util.JwtUtil;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -20,7 +20,8 @@ import org.springframework.web.filter.OncePerRequestFilter;
 public class JwtAuthFilter extends OncePerRequestFilter {
 
   private final JwtUtil jwtUtil;
-  private final UserDetailsService userDetailsService;
+  private final TokenVersionRegistry tokenVersionRegistry;
+  private final RevokedTokenRegistry revokedTokenRegistry;
 
   @Override
   protected void doFilterInternal(
@@ -29,7 +30,6 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     final String authHeader = request.getHeader("Authorization");
     final String jwt;
-    final String username;
 
     // 1. Проверяем наличие заголовка Authorization
     if (authHeader == null || !authHeader.startsWith("Bearer ")) {
@@ -38,16 +38,21 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     }
     try {
       jwt = authHeader.substring(7);
-      username = jwtUtil.extractUsername(jwt);
-      // 2. Если имя пользователя извлечено и он еще не аутентифицирован в текущем контексте
-      if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-        UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+      // Подпись и срок проверяются один раз (повтор того же токена - из кэша),
+      // невалидный токен бросает исключение
+      Claims claims = jwtUtil.validate(jwt);
+      // 2. Если пользователь еще не аутентифицирован в текущем контексте
+      if (SecurityContextHolder.getContext().getAuthentication() == null) {
+        // Пользователь целиком из claims, в БД не ходим
+        AuthenticatedUser user = jwtUtil.toPrincipal(claims);
 
-        // 3. Проверяем валидность токена (срок действия и соответствие пользователю)
-        if (jwtUtil.isTokenValid(jwt, userDetails)) {
+        // 3. Токен не отозван: версия токенов пользователя и jti сверяются с данными
+        // в памяти, в БД идем только при попадании в фильтр отозванных
+        UUID jti = UUID.fromString(claims.getId());
+        if (tokenVersionRegistry.isCurrent(user.id(), jwtUtil.extractTokenVersion(claims))
+            && !revokedTokenRegistry.isRevoked(jti, claims.getExpiration())) {
           UsernamePasswordAuthenticationToken authToken =
-              new UsernamePasswordAuthenticationToken(
-                  userDetails, null, userDetails.getAuthorities());
+              new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
 
           // Добавляем детали запроса (IP, сессия) в объект аутентификации
           authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
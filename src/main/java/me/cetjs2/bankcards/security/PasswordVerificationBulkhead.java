@@ -0,0 +1,87 @@
+package me.cetjs2.bankcards.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import me.cetjs2.bankcards.exception.LoginThrottledException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+// Проверка пароля (BCrypt - десятки миллисекунд CPU) на отдельном ограниченном пуле.
+// Во время шторма логинов пул ограничивает долю CPU под BCrypt, а лишние логины сверх
+// очереди сразу получают 429, не занимая потоки Tomcat, нужные /cards/*
+public class PasswordVerificationBulkhead implements PasswordEncoder {
+  private final PasswordEncoder delegate;
+  private final Duration timeout;
+  private final ThreadPoolExecutor executor;
+
+  public PasswordVerificationBulkhead(
+      PasswordEncoder delegate, int workers, int queueCapacity, Duration timeout) {
+    this.delegate = delegate;
+    this.timeout = timeout;
+    this.executor =
+        new ThreadPoolExecutor(
+            workers,
+            workers,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("login-bcrypt-"));
+  }
+
+  // Хэш нового пароля - редкая операция администратора, выполняется в вызывающем потоке
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return delegate.encode(rawPassword);
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    Future<Boolean> result;
+    try {
+      result = executor.submit(() -> delegate.matches(rawPassword, encodedPassword));
+    } catch (RejectedExecutionException e) {
+      throw new LoginThrottledException();
+    }
+    try {
+      return result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      // Клиент больше не ждет. Уже начатый BCrypt прерывание не замечает и досчитает
+      // впустую, а отмененная задача из очереди сама место не отдает - убираем ее через purge
+      discard(result);
+      throw new LoginThrottledException();
+    } catch (InterruptedException e) {
+      discard(result);
+      Thread.currentThread().interrupt();
+      throw new LoginThrottledException("Login interrupted");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void discard(Future<Boolean> result) {
+    result.cancel(true);
+    executor.purge();
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  int queuedVerifications() {
+    return executor.getQueue().size();
+  }
+
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
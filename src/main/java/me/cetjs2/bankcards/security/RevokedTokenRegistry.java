@@ -0,0 +1,136 @@
+package me.cetjs2.bankcards.security;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import me.cetjs2.bankcards.entity.RevokedToken;
+import me.cetjs2.bankcards.repository.RevokedTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Отозванные access-токены в памяти: фильтр Блума, разбитый на корзины по времени истечения
+// токена. JwtAuthFilter проверяет одну корзину за O(1) и идет в БД только при попадании
+// (возможно ложном). Корзины истекших токенов выбрасываются целиком - фильтр не растет.
+// Новые отзывы добираются из revoked_tokens по created_date, как версии в TokenVersionRegistry
+@Component
+public class RevokedTokenRegistry {
+  private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+  private static final int HASHES = 5;
+
+  private final RevokedTokenRepository revokedTokenRepository;
+  private final long bucketMillis;
+  private final int bitsPerBucket;
+  private final Duration overlap;
+
+  private final ConcurrentNavigableMap<Long, BloomBucket> buckets = new ConcurrentSkipListMap<>();
+  private volatile LocalDateTime watermark = EPOCH;
+
+  public RevokedTokenRegistry(
+      RevokedTokenRepository revokedTokenRepository,
+      @Value("${bankcards.jwt.access-ttl:15m}") Duration bucketWidth,
+      @Value("${bankcards.jwt.revocation.bloom-bits-per-bucket:1048576}") int bitsPerBucket,
+      @Value("${bankcards.jwt.version-refresh-overlap:1m}") Duration overlap) {
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.bucketMillis = bucketWidth.toMillis();
+    this.bitsPerBucket = bitsPerBucket;
+    this.overlap = overlap;
+  }
+
+  @PostConstruct
+  public synchronized void refresh() {
+    LocalDateTime now = LocalDateTime.now();
+    LocalDateTime latest = watermark;
+    for (RevokedToken token :
+        revokedTokenRepository.findByCreatedDateAfterAndExpiresDateAfter(
+            watermark.minus(overlap), now)) {
+      add(token.getJti(), toEpochMillis(token.getExpiresDate()));
+      if (token.getCreatedDate().isAfter(latest)) {
+        latest = token.getCreatedDate();
+      }
+    }
+    watermark = latest;
+    buckets.headMap(bucketOf(System.currentTimeMillis())).clear();
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTokensRevoked(TokensRevokedEvent event) {
+    refresh();
+  }
+
+  public boolean isRevoked(UUID jti, Date expiresAt) {
+    BloomBucket bucket = buckets.get(bucketOf(expiresAt.getTime()));
+    if (bucket == null || !bucket.mightContain(jti)) {
+      return false;
+    }
+    // Фильтр Блума допускает ложные срабатывания: подтверждаем по таблице
+    return revokedTokenRepository.existsByJti(jti);
+  }
+
+  private void add(UUID jti, long expiresAtMillis) {
+    buckets
+        .computeIfAbsent(bucketOf(expiresAtMillis), b -> new BloomBucket(bitsPerBucket))
+        .put(jti);
+  }
+
+  private long bucketOf(long epochMillis) {
+    return Math.floorDiv(epochMillis, bucketMillis);
+  }
+
+  private static long toEpochMillis(LocalDateTime dateTime) {
+    return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+  }
+
+  private static final class BloomBucket {
+    private final AtomicLongArray bits;
+    private final int size;
+
+    private BloomBucket(int size) {
+      this.size = size;
+      this.bits = new AtomicLongArray((size + 63) / 64);
+    }
+
+    void put(UUID jti) {
+      long h1 = mix(jti.getMostSignificantBits());
+      long h2 = mix(jti.getLeastSignificantBits());
+      for (int i = 0; i < HASHES; i++) {
+        int bit = (int) Math.floorMod(h1 + i * h2, (long) size);
+        long mask = 1L << (bit & 63);
+        int word = bit >>> 6;
+        long current;
+        while (((current = bits.get(word)) & mask) == 0
+            && !bits.compareAndSet(word, current, current | mask)) {
+          // повтор CAS при гонке с другим потоком
+        }
+      }
+    }
+
+    boolean mightContain(UUID jti) {
+      long h1 = mix(jti.getMostSignificantBits());
+      long h2 = mix(jti.getLeastSignificantBits());
+      for (int i = 0; i < HASHES; i++) {
+        int bit = (int) Math.floorMod(h1 + i * h2, (long) size);
+        if ((bits.get(bit >>> 6) & (1L << (bit & 63))) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    // Финализатор MurmurHash3: биты версии UUID не должны попадать в одни и те же позиции
+    private static long mix(long h) {
+      h ^= h >>> 33;
+      h *= 0xff51afd7ed558ccdL;
+      h ^= h >>> 33;
+      h *= 0xc4ceb9fe1a85ec53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
+}
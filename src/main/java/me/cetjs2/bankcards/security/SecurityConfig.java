@@ -1,6 +1,8 @@
 package me.cetjs2.bankcards.security;
 
+import java.time.Duration;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,6 +24,16 @@ public class SecurityConfig {
   private final JwtAuthFilter jwtAuthFilter;
   private final CustomUserDetailsService userDetailsService;
 
+  // 0 = половина процессоров: остальное CPU остается запросам к картам
+  @Value("${bankcards.auth.login.workers:0}")
+  private int loginWorkers;
+
+  @Value("${bankcards.auth.login.queue-capacity:64}")
+  private int loginQueueCapacity;
+
+  @Value("${bankcards.auth.login.timeout:3s}")
+  private Duration loginTimeout;
+
   @Bean
   public AuthenticationProvider authenticationProvider() {
     DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider(userDetailsService);
@@ -35,9 +47,15 @@ public class SecurityConfig {
     return config.getAuthenticationManager();
   }
 
+  // Пул останавливается вместе с контекстом (Spring вызывает shutdown() сам)
   @Bean
   public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+    int workers =
+        loginWorkers > 0
+            ? loginWorkers
+            : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    return new PasswordVerificationBulkhead(
+        new BCryptPasswordEncoder(), workers, loginQueueCapacity, loginTimeout);
   }
 
   @Bean
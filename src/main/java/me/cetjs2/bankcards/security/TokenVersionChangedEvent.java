@@ -0,0 +1,5 @@
+package me.cetjs2.bankcards.security;
+
+// У пользователя выросла версия токенов: реестр версий на этом узле перечитывает их сразу
+// после коммита, не дожидаясь планового обновления
+public record TokenVersionChangedEvent() {}
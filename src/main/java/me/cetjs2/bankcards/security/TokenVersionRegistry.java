@@ -0,0 +1,68 @@
+package me.cetjs2.bankcards.security;
+
+import jakarta.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.repository.UserRepository.TokenVersionView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Текущие версии токенов пользователей в памяти: JwtAuthFilter сверяет с ними claim "ver"
+// без запроса к БД. Хранятся только пользователи, у которых версия хоть раз менялась
+// (отзыв токенов, смена пароля или роли), остальные - версия 0.
+// Обновление инкрементальное: добираются строки с token_version_date позже последней увиденной
+@Component
+public class TokenVersionRegistry {
+  private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+  private final UserRepository userRepository;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Duration overlap;
+
+  private final Map<UUID, Integer> versions = new ConcurrentHashMap<>();
+  private volatile LocalDateTime watermark = EPOCH;
+
+  public TokenVersionRegistry(
+      UserRepository userRepository,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${bankcards.jwt.version-refresh-overlap:1m}") Duration overlap) {
+    this.userRepository = userRepository;
+    this.eventPublisher = eventPublisher;
+    this.overlap = overlap;
+  }
+
+  // До первого запроса версии должны быть загружены, иначе отозванные токены пройдут
+  @PostConstruct
+  public synchronized void refresh() {
+    // Перекрытие окна: транзакция, закоммиченная позже, могла записать более раннее время
+    LocalDateTime since = watermark.minus(overlap);
+    LocalDateTime latest = watermark;
+    for (TokenVersionView view : userRepository.findTokenVersionsChangedSince(since)) {
+      Integer known = versions.get(view.getId());
+      if (known == null || view.getTokenVersion() > known) {
+        versions.put(view.getId(), view.getTokenVersion());
+        // Версия поднимается при смене пароля или роли: снимок для логина на этом узле устарел
+        eventPublisher.publishEvent(new UserCredentialsChangedEvent(view.getUserName()));
+      }
+      if (view.getTokenVersionDate().isAfter(latest)) {
+        latest = view.getTokenVersionDate();
+      }
+    }
+    watermark = latest;
+  }
+
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onTokenVersionChanged(TokenVersionChangedEvent event) {
+    refresh();
+  }
+
+  public boolean isCurrent(UUID userId, int tokenVersion) {
+    return tokenVersion >= versions.getOrDefault(userId, 0);
+  }
+}
@@ -0,0 +1,5 @@
+package me.cetjs2.bankcards.security;
+
+// В revoked_tokens появились строки: фильтр отзыва на этом узле добирает их сразу после
+// коммита, не дожидаясь планового обновления
+public record TokensRevokedEvent() {}
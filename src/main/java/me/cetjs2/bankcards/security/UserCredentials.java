@@ -0,0 +1,40 @@
+package me.cetjs2.bankcards.security;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Отвязанный от сессии снимок пользователя для логина: без ленивой коллекции cards,
+// поэтому его можно держать в кэше CustomUserDetailsService
+public record UserCredentials(
+    UUID id, String username, String password, Role role, int tokenVersion) implements UserDetails {
+
+  public static UserCredentials from(User user) {
+    return new UserCredentials(
+        user.getId(),
+        user.getUsername(),
+        user.getPassword(),
+        user.getRole(),
+        user.getTokenVersion());
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+  }
+
+  @Override
+  public String getPassword() {
+    return password;
+  }
+
+  @Override
+  public String getUsername() {
+    return username;
+  }
+}
@@ -0,0 +1,5 @@
+package me.cetjs2.bankcards.security;
+
+// Пароль, роль или версия токенов пользователя изменились: снимок в кэше устарел.
+// Публикуется в транзакции изменения, кэш сбрасывается после ее коммита
+public record UserCredentialsChangedEvent(String username) {}
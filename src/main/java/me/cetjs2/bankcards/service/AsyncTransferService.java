@@ -0,0 +1,223 @@
+package me.cetjs2.bankcards.service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.dto.TransferRequest;
+import me.cetjs2.bankcards.dto.TransferStatusResponse;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.entity.TransferRecord;
+import me.cetjs2.bankcards.entity.TransferStatus;
+import me.cetjs2.bankcards.exception.TransferNotFoundException;
+import me.cetjs2.bankcards.exception.TransferQueueFullException;
+import me.cetjs2.bankcards.repository.TransferRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Асинхронные переводы: запрос только сохраняет PENDING-запись и ставит ее в ограниченную
+// очередь пула исполнителей. Переполненная очередь отвечает 429, а не занимает потоки Tomcat
+// и соединения пула БД
+@Service
+public class AsyncTransferService {
+  private final TransferRecordRepository transferRecordRepository;
+  private final TransferService transferService;
+  private final UserService userService;
+  private final IdempotencyService idempotencyService;
+  private final TransactionTemplate transactionTemplate;
+  private final Duration staleAfter;
+  private final ThreadPoolExecutor executor;
+
+  public AsyncTransferService(
+      TransferRecordRepository transferRecordRepository,
+      TransferService transferService,
+      UserService userService,
+      IdempotencyService idempotencyService,
+      TransactionTemplate transactionTemplate,
+      @Value("${bankcards.transfer.async.workers:4}") int workers,
+      @Value("${bankcards.transfer.async.queue-capacity:1000}") int queueCapacity,
+      @Value("${bankcards.transfer.async.stale-after:30s}") Duration staleAfter) {
+    this.transferRecordRepository = transferRecordRepository;
+    this.transferService = transferService;
+    this.userService = userService;
+    this.idempotencyService = idempotencyService;
+    this.transactionTemplate = transactionTemplate;
+    this.staleAfter = staleAfter;
+    this.executor =
+        new ThreadPoolExecutor(
+            workers,
+            workers,
+            0,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            new CustomizableThreadFactory("transfer-async-"));
+  }
+
+  public TransferStatusResponse submit(TransferRequest request, String idempotencyKey) {
+    UUID ownerId = userService.getCurrentUser().id();
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      checkCapacity();
+      TransferRecord record = transferRecordRepository.save(pending(ownerId, request));
+      // Перевод не принят: клиент получит 429 и повторит, запись не должна выполниться сама
+      enqueue(record, () -> transferRecordRepository.delete(record));
+      return toResponse(record);
+    }
+    // Ключ резервируется в одной транзакции с записью перевода: повтор с тем же ключом
+    // получает id уже принятого перевода и новую запись не создает. Префикс отделяет ключи
+    // асинхронных переводов от синхронных с тем же телом
+    String fingerprint = "async:" + TransferService.fingerprint(request);
+    AtomicReference<TransferRecord> accepted = new AtomicReference<>();
+    UUID transferId =
+        idempotencyService.executeAccepted(
+            ownerId,
+            idempotencyKey,
+            fingerprint,
+            () -> {
+              checkCapacity();
+              TransferRecord record =
+                  transactionTemplate.execute(
+                      status -> {
+                        IdempotencyRecord reservation =
+                            idempotencyService.reserve(ownerId, idempotencyKey, fingerprint);
+                        TransferRecord saved =
+                            transferRecordRepository.save(pending(ownerId, request));
+                        idempotencyService.complete(reservation, saved.getId());
+                        return saved;
+                      });
+              enqueue(
+                  record,
+                  () ->
+                      transactionTemplate.executeWithoutResult(
+                          status -> {
+                            transferRecordRepository.delete(record);
+                            idempotencyService.release(ownerId, idempotencyKey);
+                          }));
+              accepted.set(record);
+              return record.getId();
+            });
+    TransferRecord record = accepted.get();
+    if (record != null) {
+      return toResponse(record);
+    }
+    return transferRecordRepository
+        .findByIdAndOwnerId(transferId, ownerId)
+        .map(this::toResponse)
+        .orElseThrow(() -> new TransferNotFoundException());
+  }
+
+  public TransferStatusResponse getStatus(UUID id) {
+    UUID ownerId = userService.getCurrentUser().id();
+    return transferRecordRepository
+        .findByIdAndOwnerId(id, ownerId)
+        .map(this::toResponse)
+        .orElseThrow(() -> new TransferNotFoundException());
+  }
+
+  // Захват записи, перевод и итоговый статус - одна транзакция: перевод выполняется ровно
+  // один раз, даже если запись одновременно подхватили несколько исполнителей
+  void process(UUID transferId) {
+    transactionTemplate.executeWithoutResult(
+        status ->
+            transferRecordRepository
+                .claimPending(transferId)
+                .ifPresent(
+                    record -> {
+                      TransferRequest request =
+                          new TransferRequest(
+                              record.getFromCardId(), record.getToCardId(), record.getAmount());
+                      Object savepoint = status.createSavepoint();
+                      TransferRecord.TransferRecordBuilder result =
+                          record.toBuilder().completedDate(LocalDateTime.now());
+                      try {
+                        SucessActionResponse response =
+                            transferService.transfer(record.getOwnerId(), request);
+                        result.status(TransferStatus.COMPLETED).message(response.message());
+                      } catch (DataAccessException e) {
+                        // Сбой БД: транзакция откатывается, запись остается PENDING для добора
+                        throw e;
+                      } catch (RuntimeException e) {
+                        // Отказ по правилам перевода: откатываем только перевод
+                        status.rollbackToSavepoint(savepoint);
+                        result.status(TransferStatus.FAILED).message(e.getMessage());
+                      }
+                      transferRecordRepository.save(result.build());
+                    }));
+  }
+
+  // Добор зависших PENDING-записей (рестарт узла, сбой БД): ставим в очередь, пока есть место
+  public int resubmitStale(int limit) {
+    int capacity = Math.min(limit, executor.getQueue().remainingCapacity());
+    if (capacity == 0) {
+      return 0;
+    }
+    List<UUID> stale =
+        transferRecordRepository.findPendingIdsCreatedBefore(
+            LocalDateTime.now().minus(staleAfter), capacity);
+    int submitted = 0;
+    for (UUID id : stale) {
+      try {
+        executor.execute(() -> process(id));
+        submitted++;
+      } catch (RejectedExecutionException e) {
+        break;
+      }
+    }
+    return submitted;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    // Очередь не дожидаемся: оставшиеся PENDING-записи доберет следующий запуск
+    executor.shutdownNow();
+  }
+
+  // Быстрый отказ без записи в БД, пока очередь заведомо полна
+  private void checkCapacity() {
+    if (executor.getQueue().remainingCapacity() == 0) {
+      throw new TransferQueueFullException();
+    }
+  }
+
+  // cancel отменяет уже сохраненный перевод, если очередь заполнилась между проверкой и постановкой
+  private void enqueue(TransferRecord record, Runnable cancel) {
+    try {
+      executor.execute(() -> process(record.getId()));
+    } catch (RejectedExecutionException e) {
+      cancel.run();
+      throw new TransferQueueFullException();
+    }
+  }
+
+  private TransferRecord pending(UUID ownerId, TransferRequest request) {
+    return TransferRecord.builder()
+        .ownerId(ownerId)
+        .fromCardId(request.fromCardId())
+        .toCardId(request.toCardId())
+        .amount(request.sum())
+        .status(TransferStatus.PENDING)
+        .createdDate(LocalDateTime.now())
+        .build();
+  }
+
+  private TransferStatusResponse toResponse(TransferRecord record) {
+    return new TransferStatusResponse(
+        record.getId(),
+        record.getStatus(),
+        record.getFromCardId(),
+        record.getToCardId(),
+        record.getAmount(),
+        record.getMessage(),
+        record.getCreatedDate(),
+        record.getCompletedDate());
+  }
+}
@@ -0,0 +1,164 @@
+package me.cetjs2.bankcards.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.AuthTokensResponse;
+import me.cetjs2.bankcards.entity.RefreshToken;
+import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.exception.InvalidRefreshTokenException;
+import me.cetjs2.bankcards.repository.RefreshTokenRepository;
+import me.cetjs2.bankcards.repository.RevokedTokenRepository;
+import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.security.TokenVersionChangedEvent;
+import me.cetjs2.bankcards.security.TokensRevokedEvent;
+import me.cetjs2.bankcards.security.UserCredentials;
+import me.cetjs2.bankcards.util.JwtUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Короткоживущие access-токены и одноразовые refresh-токены с ротацией.
+// Повторное предъявление уже обмененного refresh-токена означает, что им пользуется кто-то
+// еще: отзывается вся цепочка вместе с ее живыми access-токенами
+@Service
+public class AuthTokenService {
+  private final RefreshTokenRepository refreshTokenRepository;
+  private final RevokedTokenRepository revokedTokenRepository;
+  private final UserRepository userRepository;
+  private final JwtUtil jwtUtil;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Duration accessTtl;
+  private final Duration refreshTtl;
+
+  private final SecureRandom random = new SecureRandom();
+
+  public AuthTokenService(
+      RefreshTokenRepository refreshTokenRepository,
+      RevokedTokenRepository revokedTokenRepository,
+      UserRepository userRepository,
+      JwtUtil jwtUtil,
+      ApplicationEventPublisher eventPublisher,
+      @Value("${bankcards.jwt.access-ttl:15m}") Duration accessTtl,
+      @Value("${bankcards.jwt.refresh-ttl:30d}") Duration refreshTtl) {
+    this.refreshTokenRepository = refreshTokenRepository;
+    this.revokedTokenRepository = revokedTokenRepository;
+    this.userRepository = userRepository;
+    this.jwtUtil = jwtUtil;
+    this.eventPublisher = eventPublisher;
+    this.accessTtl = accessTtl;
+    this.refreshTtl = refreshTtl;
+  }
+
+  // Логин открывает новую цепочку
+  @Transactional
+  public AuthTokensResponse issue(UserCredentials user) {
+    return issue(user, UUID.randomUUID());
+  }
+
+  // Исключение не откатывает транзакцию: отзыв цепочки при повторе должен сохраниться
+  @Transactional(noRollbackFor = InvalidRefreshTokenException.class)
+  public AuthTokensResponse refresh(String refreshToken) {
+    LocalDateTime now = LocalDateTime.now();
+    RefreshToken current =
+        refreshTokenRepository
+            .findByTokenHash(hash(refreshToken))
+            .orElseThrow(() -> new InvalidRefreshTokenException());
+    if (!current.getExpiresDate().isAfter(now)) {
+      throw new InvalidRefreshTokenException("Refresh token expired");
+    }
+    if (refreshTokenRepository.revoke(current.getId(), now) == 0) {
+      revokeFamily(current.getFamilyId());
+      throw new InvalidRefreshTokenException("Refresh token reuse detected");
+    }
+    User user =
+        userRepository
+            .findById(current.getUserId())
+            .orElseThrow(() -> new InvalidRefreshTokenException());
+    // После смены пароля или роли старые цепочки не продлеваются
+    if (user.getTokenVersion() > current.getTokenVersion()) {
+      revokeFamily(current.getFamilyId());
+      throw new InvalidRefreshTokenException("Refresh token revoked");
+    }
+    return issue(UserCredentials.from(user), current.getFamilyId());
+  }
+
+  // Выход: гасится вся цепочка, включая выданный с ней access-токен
+  @Transactional
+  public void logout(String refreshToken) {
+    refreshTokenRepository
+        .findByTokenHash(hash(refreshToken))
+        .ifPresent(token -> revokeFamily(token.getFamilyId()));
+  }
+
+  // Выход на всех устройствах: версия токенов пользователя растет, и ни один выданный ему
+  // access-токен (JwtAuthFilter) или refresh-токен (refresh) больше не принимается
+  @Transactional
+  public void logoutAll(String refreshToken) {
+    refreshTokenRepository
+        .findByTokenHash(hash(refreshToken))
+        .ifPresent(
+            token -> {
+              userRepository.bumpTokenVersion(token.getUserId());
+              eventPublisher.publishEvent(new TokenVersionChangedEvent());
+            });
+  }
+
+  @Transactional
+  public int purgeExpired() {
+    LocalDateTime now = LocalDateTime.now();
+    return refreshTokenRepository.deleteExpiredBefore(now)
+        + revokedTokenRepository.deleteExpiredBefore(now);
+  }
+
+  private AuthTokensResponse issue(UserCredentials user, UUID familyId) {
+    LocalDateTime now = LocalDateTime.now();
+    // exp в JWT хранится с точностью до секунды - так же храним и в БД
+    LocalDateTime accessExpires = now.plus(accessTtl).truncatedTo(ChronoUnit.SECONDS);
+    UUID accessJti = UUID.randomUUID();
+    String accessToken =
+        jwtUtil.generateToken(
+            user, accessJti, accessExpires.atZone(ZoneId.systemDefault()).toInstant());
+
+    byte[] secret = new byte[32];
+    random.nextBytes(secret);
+    String refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+    refreshTokenRepository.save(
+        RefreshToken.builder()
+            .userId(user.id())
+            .familyId(familyId)
+            .tokenHash(hash(refreshToken))
+            .tokenVersion(user.tokenVersion())
+            .accessJti(accessJti)
+            .accessExpiresDate(accessExpires)
+            .expiresDate(now.plus(refreshTtl))
+            .createdDate(now)
+            .build());
+    return new AuthTokensResponse(accessToken, refreshToken, accessTtl.toSeconds());
+  }
+
+  private void revokeFamily(UUID familyId) {
+    if (refreshTokenRepository.revokeFamily(familyId) > 0) {
+      eventPublisher.publishEvent(new TokensRevokedEvent());
+    }
+  }
+
+  private static String hash(String token) {
+    try {
+      return HexFormat.of()
+          .formatHex(
+              MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -12,6 +12,7 @@ import me.cetjs2.bankcards.exception.CardPermissionDeniedException;
 import me.cetjs2.bankcards.repository.BlockRequestRepository;
 import me.cetjs2.bankcards.repository.CardRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @RequiredArgsConstructor
 @Service
@@ -20,16 +21,19 @@ public class BlockRequestService {
   private final CardRepository cardRepository;
   private final UserService userService;
 
+  // Чтение карты и запись запроса - одна транзакция записи: обе идут в основную БД
+  @Transactional
   public SucessActionResponse sendBlockRequest(UUID cardId) {
     Card card = cardRepository.findById(cardId).orElseThrow(() -> new CardNotFoundException());
-    if (card.getOwner() != userService.getCurrentUser()) {
+    // id владельца берется из прокси без загрузки пользователя
+    if (!card.getOwner().getId().equals(userService.getCurrentUser().id())) {
       throw new CardPermissionDeniedException();
     }
     if (blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId)) {
       return new SucessActionResponse(
           "Запрос на блокировку карты существует в БД,  ожидайте решения");
     }
-    if (card.getCardStatus() != CardStatus.ACTIVE) {
+    if (card.getEffectiveStatus() != CardStatus.ACTIVE) {
       throw new CardPermissionDeniedException("Карта просрочена или уже заблокирована");
     }
     BlockRequest blockRequest =
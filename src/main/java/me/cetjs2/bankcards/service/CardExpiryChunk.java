@@ -0,0 +1,7 @@
+package me.cetjs2.bankcards.service;
+
+import me.cetjs2.bankcards.util.CursorCodec;
+
+// Итог одной порции истечения: сколько карт переведено в EXPIRED и с какой позиции
+// продолжать (null - кандидатов больше нет)
+public record CardExpiryChunk(int expired, CursorCodec.CardPosition next) {}
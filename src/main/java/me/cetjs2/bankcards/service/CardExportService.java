@@ -0,0 +1,103 @@
+package me.cetjs2.bankcards.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardExportFormat;
+import me.cetjs2.bankcards.dto.CardViewResponse;
+import me.cetjs2.bankcards.repository.CardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+// Выгрузка карт для админа порциями по export-chunk-size через keyset-запросы списка по id.
+// Каждая порция читается своей короткой транзакцией и сразу уходит клиенту. Соединение
+// возвращается в пул в конце транзакции порции только потому, что open-in-view выключен
+// (spring.jpa.open-in-view): иначе EntityManager запроса держал бы первое соединение до конца
+// выгрузки. Пока медленный клиент принимает порцию, соединение и снимок БД не заняты,
+// в памяти - одна порция и буфер записи
+@Service
+public class CardExportService {
+  private static final String CSV_HEADER =
+      "id,cardNumber,ownerName,cardStatus,expirationDate,balance";
+  // Тот же формат срока, что и в JSON-ответах (CardViewResponse)
+  private static final DateTimeFormatter EXPIRATION_FORMAT = DateTimeFormatter.ofPattern("MM/yy");
+  private static final UUID EXPORT_START_ID = new UUID(0L, 0L);
+
+  private final CardRepository cardRepository;
+  private final JsonMapper jsonMapper;
+  private final int chunkSize;
+
+  public CardExportService(
+      CardRepository cardRepository,
+      JsonMapper jsonMapper,
+      @Value("${bankcards.cards.export-chunk-size:1000}") int chunkSize) {
+    this.cardRepository = cardRepository;
+    this.jsonMapper = jsonMapper;
+    this.chunkSize = chunkSize;
+  }
+
+  // Фильтр по владельцу - как у админа в getAllAvailableCards: пустой = все карты.
+  // Транзакции на всю выгрузку нет: порции видят разные снимки, карта, выпущенная по ходу
+  // выгрузки, попадет в нее, если ее id больше уже отданных
+  public void export(String targetUsername, CardExportFormat format, OutputStream out)
+      throws IOException {
+    boolean byOwner = targetUsername != null && !targetUsername.isBlank();
+    Pageable limit = PageRequest.of(0, chunkSize);
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    if (format == CardExportFormat.CSV) {
+      writer.write(CSV_HEADER);
+      writer.write('\n');
+    }
+    UUID after = EXPORT_START_ID;
+    Slice<CardViewResponse> chunk;
+    do {
+      chunk =
+          byOwner
+              ? cardRepository.findOwnerViewsAfterId(targetUsername, after, limit)
+              : cardRepository.findViewsAfterId(after, limit);
+      for (CardViewResponse view : chunk) {
+        writeLine(writer, format, view);
+        after = view.id();
+      }
+      // Порция уходит клиенту до чтения следующей
+      writer.flush();
+    } while (chunk.hasNext());
+  }
+
+  private void writeLine(Writer writer, CardExportFormat format, CardViewResponse view)
+      throws IOException {
+    writer.write(format == CardExportFormat.CSV ? csv(view) : jsonMapper.writeValueAsString(view));
+    writer.write('\n');
+  }
+
+  private static String csv(CardViewResponse view) {
+    return String.join(
+        ",",
+        view.id().toString(),
+        view.cardNumber(),
+        csvField(view.ownerName()),
+        view.cardStatus().name(),
+        EXPIRATION_FORMAT.format(view.expirationDate()),
+        view.balance().toPlainString());
+  }
+
+  // Логин - единственное поле с произвольным текстом: кавычки по RFC 4180 при необходимости
+  private static String csvField(String value) {
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+}
@@ -0,0 +1,116 @@
+package me.cetjs2.bankcards.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.entity.Card;
+import me.cetjs2.bankcards.entity.LedgerEntry;
+import me.cetjs2.bankcards.entity.LedgerEntryType;
+import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.repository.CardBalanceStripeRepository;
+import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository.PendingEntry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Журнал движений по картам. cards.balance - снимок, текущий остаток = снимок + хвост журнала
+// (+ полосы card_balance_stripes у карт с частыми зачислениями)
+@Service
+@RequiredArgsConstructor
+public class CardLedgerService {
+  private final LedgerEntryRepository ledgerEntryRepository;
+  private final CardBalanceStripeRepository cardBalanceStripeRepository;
+  private final CardRepository cardRepository;
+
+  public BigDecimal getCurrentBalance(UUID cardId) {
+    return cardRepository
+        .findCurrentBalance(cardId)
+        .orElseThrow(() -> new CardNotFoundException("Card not found"));
+  }
+
+  // Все, что не попало в снимок, по набору карт: хвост журнала и полосы (для списков)
+  public Map<UUID, BigDecimal> getPendingTotals(Collection<UUID> cardIds) {
+    if (cardIds.isEmpty()) {
+      return Map.of();
+    }
+    Map<UUID, BigDecimal> totals = new HashMap<>();
+    Stream.concat(
+            ledgerEntryRepository.sumPendingByCardIds(cardIds).stream(),
+            cardBalanceStripeRepository.sumByCardIds(cardIds).stream())
+        .forEach(total -> totals.merge(total.getCardId(), total.getTotal(), BigDecimal::add));
+    return totals;
+  }
+
+  public BigDecimal currentBalance(Card card, Map<UUID, BigDecimal> pendingTotals) {
+    return card.getBalance().add(pendingTotals.getOrDefault(card.getId(), BigDecimal.ZERO));
+  }
+
+  // Начальный остаток новой карты уже лежит в снимке, запись журнала сразу учтенная
+  public void recordOpeningBalance(Card card) {
+    ledgerEntryRepository.save(entry(card, card.getBalance(), true));
+  }
+
+  public LedgerEntry entry(Card card, BigDecimal amount, boolean folded) {
+    return LedgerEntry.builder()
+        .card(card)
+        .amount(amount)
+        .entryType(amount.signum() < 0 ? LedgerEntryType.DEBIT : LedgerEntryType.CREDIT)
+        .folded(folded)
+        .createdDate(LocalDateTime.now())
+        .build();
+  }
+
+  // Перед повторным списанием: переносит в снимок хвост журнала и полосы одной карты.
+  // Сначала журнал, потом полосы - в том же порядке блокировок, что и у фоновой свертки
+  public boolean foldIntoSnapshot(UUID cardId) {
+    boolean folded = ledgerEntryRepository.foldPending(cardId) == 1;
+    return cardBalanceStripeRepository.sweep(cardId) == 1 || folded;
+  }
+
+  // Включение (stripes > 0), изменение числа или выключение (0) полос карты.
+  // Строка карты блокируется первой: смены числа полос идут строго друг за другом, а старые
+  // полосы перед удалением сметаются в снимок. Зачисление, ждавшее удаленную полосу,
+  // не найдет ее и запишется в журнал как неучтенное, так что деньги не теряются
+  @Transactional
+  public void restripe(UUID cardId, int stripes) {
+    cardRepository
+        .findByIdForUpdate(cardId)
+        .orElseThrow(() -> new CardNotFoundException("Card not found"));
+    cardBalanceStripeRepository.sweep(cardId);
+    cardBalanceStripeRepository.deleteByCardId(cardId);
+    if (stripes > 0) {
+      cardBalanceStripeRepository.createStripes(cardId, stripes);
+    }
+    cardRepository.updateStripeCount(cardId, stripes);
+  }
+
+  // Возвращает число обновленных карт; 0 - сворачивать нечего или все карты порции заняты.
+  // Записи карт, пропущенных как занятые, остаются неучтенными до следующего запуска
+  @Transactional
+  public int foldPendingEntries(int limit) {
+    List<PendingEntry> entries = ledgerEntryRepository.lockOldestPending(limit);
+    if (entries.isEmpty()) {
+      return 0;
+    }
+    Set<UUID> locked =
+        new HashSet<>(
+            cardRepository.lockIdsForFold(
+                entries.stream().map(PendingEntry::getCardId).collect(Collectors.toSet())));
+    List<UUID> foldable =
+        entries.stream()
+            .filter(entry -> locked.contains(entry.getCardId()))
+            .map(PendingEntry::getId)
+            .toList();
+    return foldable.isEmpty() ? 0 : ledgerEntryRepository.foldEntries(foldable);
+  }
+}
@@ -5,21 +5,29 @@ import java.time.YearMonth;
 import java.util.List;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.dto.CardListOrder;
+import me.cetjs2.bankcards.dto.CardListResponse;
 import me.cetjs2.bankcards.dto.CardViewResponse;
 import me.cetjs2.bankcards.dto.CreateCardRequest;
+import me.cetjs2.bankcards.dto.ETagged;
 import me.cetjs2.bankcards.dto.SucessActionResponse;
 import me.cetjs2.bankcards.entity.BlockRequest;
 import me.cetjs2.bankcards.entity.Card;
 import me.cetjs2.bankcards.entity.CardStatus;
 import me.cetjs2.bankcards.entity.User;
 import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.exception.InvalidCursorException;
 import me.cetjs2.bankcards.exception.UsernameNotFoundException;
 import me.cetjs2.bankcards.repository.BlockRequestRepository;
 import me.cetjs2.bankcards.repository.CardRepository;
 import me.cetjs2.bankcards.repository.UserRepository;
 import me.cetjs2.bankcards.util.CardUtil;
+import me.cetjs2.bankcards.util.CursorCodec;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,8 +38,16 @@ public class CardService {
   private final UserRepository userRepository;
   private final UserService userService;
   private final BlockRequestRepository blockRequestRepository;
+  private final CardLedgerService cardLedgerService;
   private final CardUtil cardUtil;
+  private final CardViewCache cardViewCache;
+  private final ApplicationEventPublisher eventPublisher;
 
+  // Начало списка в режиме курсора: позиция раньше любой карты
+  private static final YearMonth LIST_START_DATE = YearMonth.of(1900, 1);
+  private static final UUID LIST_START_ID = new UUID(0L, 0L);
+
+  @Transactional
   public CardViewResponse createCard(CreateCardRequest createCardRequest) {
     User ownerCard =
         userRepository
@@ -46,6 +62,8 @@ public class CardService {
             .cardNumber(cardUtil.generateCardNumber("4444 4"))
             .build();
     newCard = cardRepository.save(newCard);
+    cardLedgerService.recordOpeningBalance(newCard);
+    eventPublisher.publishEvent(new CardsChangedEvent(List.of(newCard.getId())));
     return new CardViewResponse(
         newCard.getId(),
         cardUtil.maskCardNumber(newCard.getCardNumber()),
@@ -55,30 +73,22 @@ public class CardService {
         newCard.getBalance());
   }
 
-  public CardViewResponse getCardInfo(UUID id) {
-    Card card =
-        cardRepository.findById(id).orElseThrow(() -> new CardNotFoundException("Card not found"));
-    return new CardViewResponse(
-        card.getId(),
-        cardUtil.maskCardNumber(card.getCardNumber()),
-        card.getOwner().getUsername(),
-        card.getCardStatus(),
-        card.getExpirationDate(),
-        card.getBalance());
+  public ETagged<CardViewResponse> getCardInfo(UUID id) {
+    return cardViewCache.get(id);
   }
 
   @Transactional
   public SucessActionResponse blockCard(UUID id) {
-    Card card =
-        cardRepository.findById(id).orElseThrow(() -> new CardNotFoundException("Card not found"));
-    card = card.toBuilder().cardStatus(CardStatus.BLOCKED).build();
-    cardRepository.save(card);
+    if (cardRepository.updateStatus(id, CardStatus.BLOCKED) == 0) {
+      throw new CardNotFoundException("Card not found");
+    }
+    eventPublisher.publishEvent(new CardsChangedEvent(List.of(id)));
     if (blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(id)) {
       BlockRequest blockRequest =
           blockRequestRepository.findOneByCardIdAndApprovedByIsNullAndApprovedDateIsNull(id);
       blockRequest =
           blockRequest.toBuilder()
-              .approvedBy(userService.getCurrentUser())
+              .approvedBy(userRepository.getReferenceById(userService.getCurrentUser().id()))
               .approvedDate(LocalDateTime.now())
               .build();
       blockRequestRepository.save(blockRequest);
@@ -86,53 +96,122 @@ public class CardService {
     return new SucessActionResponse("Карта " + id.toString() + " успешно заблокирована");
   }
 
+  public SucessActionResponse setStriping(UUID id, int stripes) {
+    cardLedgerService.restripe(id, stripes);
+    return new SucessActionResponse(
+        stripes > 0
+            ? "Остаток карты " + id + " разбит на " + stripes + " полос"
+            : "Разбиение остатка карты " + id + " выключено");
+  }
+
+  // Проверка и удаление - одна транзакция записи: обе идут в основную БД
+  @Transactional
   public SucessActionResponse deleteCard(UUID id) {
 
     if (!cardRepository.existsById(id)) {
       throw new CardNotFoundException();
     }
     cardRepository.deleteById(id);
+    eventPublisher.publishEvent(new CardsChangedEvent(List.of(id)));
 
     return new SucessActionResponse("Карта " + id.toString() + " успешно удалена");
   }
 
+  @Transactional(readOnly = true)
   public Page<CardViewResponse> getAllAvailableCards(
       String currentUsername, String targetUsername, boolean isAdmin, Pageable pageable) {
-    Page<Card> cardPage;
-
+    // Страница собирается в запросе целиком (владелец, маска, остаток с хвостом журнала),
+    // без загрузки карт и их владельцев по одному
     if (isAdmin) {
       // Админ может фильтровать по конкретному юзеру или смотреть всех
       if (targetUsername != null && !targetUsername.isBlank()) {
-        cardPage = cardRepository.findByOwnerUserName(targetUsername, pageable);
-      } else {
-        cardPage = cardRepository.findAll(pageable);
+        return cardRepository.findViewsByOwnerUserName(targetUsername, pageable);
       }
+      return cardRepository.findAllViews(pageable);
+    }
+    // Обычный юзер видит ТОЛЬКО свои карты
+    return cardRepository.findViewsByOwnerUserName(currentUsername, pageable);
+  }
+
+  // Режим курсора для /cards/list: те же правила видимости, но страница ищется по индексу
+  // от позиции последней отданной карты, без OFFSET и COUNT
+  @Transactional(readOnly = true)
+  public CardListResponse getCardsByCursor(
+      String currentUsername,
+      String targetUsername,
+      boolean isAdmin,
+      CardListOrder order,
+      String cursor,
+      int size) {
+    CursorCodec.CardPosition after;
+    if (cursor == null || cursor.isBlank()) {
+      after = new CursorCodec.CardPosition(order, LIST_START_DATE, LIST_START_ID);
     } else {
-      // Обычный юзер видит ТОЛЬКО свои карты
-      cardPage = cardRepository.findByOwnerUserName(currentUsername, pageable);
+      after = CursorCodec.decodeCard(cursor);
+      if (after.order() != order) {
+        throw new InvalidCursorException("Cursor was issued for order " + after.order());
+      }
     }
+    String owner = currentUsername;
+    if (isAdmin) {
+      owner = targetUsername != null && !targetUsername.isBlank() ? targetUsername : null;
+    }
+
+    Pageable limit = PageRequest.of(0, size);
+    Slice<CardViewResponse> slice =
+        switch (order) {
+          case ID ->
+              owner == null
+                  ? cardRepository.findViewsAfterId(after.id(), limit)
+                  : cardRepository.findOwnerViewsAfterId(owner, after.id(), limit);
+          case EXPIRATION_DATE ->
+              owner == null
+                  ? cardRepository.findViewsAfterExpiration(
+                      after.expirationDate().atDay(1), after.id(), limit)
+                  : cardRepository.findOwnerViewsAfterExpiration(
+                      owner, after.expirationDate().atDay(1), after.id(), limit);
+        };
 
-    return cardPage.map(
-        card ->
-            new CardViewResponse(
-                card.getId(),
-                cardUtil.maskCardNumber(card.getCardNumber()),
-                card.getOwner().getUsername(),
-                card.getCardStatus(),
-                card.getExpirationDate(),
-                card.getBalance()));
+    String nextCursor = null;
+    if (slice.hasNext()) {
+      CardViewResponse last = slice.getContent().get(slice.getNumberOfElements() - 1);
+      nextCursor = CursorCodec.encode(order, last.expirationDate(), last.id());
+    }
+    return new CardListResponse(slice.getContent(), nextCursor);
   }
 
+  // Одна порция ночного истечения своей транзакцией: до limit активных карт со сроком раньше
+  // before после позиции after (null - с начала) переводятся в EXPIRED одним UPDATE.
+  // Порции обходит CardExpiryScheduler, закоммиченные порции при перезапуске не повторяются
   @Transactional
-  public void blockExpiredCards() {
-    YearMonth today = YearMonth.now();
-    // Находим все активные карты, у которых дата истечения меньше текущего месяца
-    List<Card> expiredCards =
-        cardRepository.findAllByCardStatusAndExpirationDateBefore(CardStatus.ACTIVE, today);
-
-    for (Card card : expiredCards) {
-      var expiredCard = card.toBuilder().cardStatus(CardStatus.EXPIRED).build();
-      cardRepository.save(expiredCard);
+  public CardExpiryChunk expireCardsChunk(
+      YearMonth before, CursorCodec.CardPosition after, int limit) {
+    if (after == null) {
+      after =
+          new CursorCodec.CardPosition(
+              CardListOrder.EXPIRATION_DATE, LIST_START_DATE, LIST_START_ID);
+    }
+    List<CardRepository.ExpiryCandidate> candidates =
+        cardRepository.findExpiryCandidates(
+            CardStatus.ACTIVE,
+            before,
+            after.expirationDate().atDay(1),
+            after.id(),
+            PageRequest.of(0, limit));
+    if (candidates.isEmpty()) {
+      return new CardExpiryChunk(0, null);
+    }
+    List<UUID> ids = candidates.stream().map(CardRepository.ExpiryCandidate::getId).toList();
+    int expired = cardRepository.updateStatus(ids, CardStatus.ACTIVE, CardStatus.EXPIRED);
+    eventPublisher.publishEvent(new CardsChangedEvent(ids));
+
+    if (candidates.size() < limit) {
+      return new CardExpiryChunk(expired, null);
     }
+    CardRepository.ExpiryCandidate last = candidates.get(candidates.size() - 1);
+    return new CardExpiryChunk(
+        expired,
+        new CursorCodec.CardPosition(
+            CardListOrder.EXPIRATION_DATE, last.getExpirationDate(), last.getId()));
   }
 }
@@ -0,0 +1,69 @@
+package me.cetjs2.bankcards.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardViewResponse;
+import me.cetjs2.bankcards.dto.ETagged;
+import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.util.ETags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+// Представления карт для GET /cards/view/{id}: читаются намного чаще, чем меняются.
+// Вместе с представлением хранится его ETag: повторный опрос с If-None-Match получает 304
+// без запроса к БД и без сериализации
+// Параллельные промахи по одной карте ждут одну загрузку, а не идут в БД каждый.
+// На своем узле изменения сбрасываются после коммита через CardsChangedEvent, TTL ограничивает
+// устаревание на других узлах. Метрики: cache.gets{cache=cardViews,result=hit|miss},
+// cache.evictions, cache.load, cache.load.duration (суммарное время загрузок)
+@Component
+public class CardViewCache {
+
+  private final LoadingCache<UUID, ETagged<CardViewResponse>> views;
+
+  public CardViewCache(
+      CardRepository cardRepository,
+      MeterRegistry meterRegistry,
+      @Value("${bankcards.cards.view-cache-size:10000}") long cacheSize,
+      @Value("${bankcards.cards.view-cache-ttl:1m}") Duration cacheTtl) {
+    this.views =
+        Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheTtl)
+            .recordStats()
+            // Несуществующие карты не кэшируем: исключение загрузчика уходит вызывающему
+            .build(
+                id ->
+                    cardRepository
+                        .findViewById(id)
+                        .map(view -> new ETagged<>(view, ETags.of(view)))
+                        .orElseThrow(() -> new CardNotFoundException("Card not found")));
+    CaffeineCacheMetrics.monitor(meterRegistry, views, "cardViews");
+  }
+
+  public ETagged<CardViewResponse> get(UUID id) {
+    ETagged<CardViewResponse> view = views.get(id);
+    // Представление, закэшированное до смены месяца, могло устареть: срок карты уже истек
+    if (view.body().cardStatus() == CardStatus.ACTIVE
+        && view.body().expirationDate().isBefore(YearMonth.now())) {
+      views.invalidate(id);
+      view = views.get(id);
+    }
+    return view;
+  }
+
+  // Сброс ждет загрузку той же карты, начатую до коммита, и удаляет ее результат:
+  // старое представление не переживет изменение
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onCardsChanged(CardsChangedEvent event) {
+    views.invalidateAll(event.cardIds());
+  }
+}
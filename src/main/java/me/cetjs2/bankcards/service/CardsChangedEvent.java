@@ -0,0 +1,8 @@
+package me.cetjs2.bankcards.service;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// У карт изменились статус, остаток или сами карты: CardViewCache сбрасывает их представления
+// после коммита, следующий GET /cards/view/{id} прочитает свежие данные
+public record CardsChangedEvent(Collection<UUID> cardIds) {}
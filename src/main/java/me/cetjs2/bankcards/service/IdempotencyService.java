@@ -0,0 +1,178 @@
+package me.cetjs2.bankcards.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.exception.IdempotencyKeyConflictException;
+import me.cetjs2.bankcards.repository.IdempotencyRecordRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class IdempotencyService {
+  private final IdempotencyRecordRepository idempotencyRecordRepository;
+  private final Duration retention;
+  private final Duration waitTimeout;
+
+  // Фронт-кэш завершенных результатов: повтор отвечает без обращения к БД
+  private final Cache<String, CompletedRequest> completed;
+  // Выполняющиеся оригиналы: дубликаты ждут их результата, а не гонятся с ними
+  private final ConcurrentMap<String, CompletableFuture<CompletedRequest>> inFlight =
+      new ConcurrentHashMap<>();
+
+  public IdempotencyService(
+      IdempotencyRecordRepository idempotencyRecordRepository,
+      @Value("${bankcards.idempotency.cache-size:10000}") long cacheSize,
+      @Value("${bankcards.idempotency.cache-ttl:10m}") Duration cacheTtl,
+      @Value("${bankcards.idempotency.retention:24h}") Duration retention,
+      @Value("${bankcards.idempotency.wait-timeout:30s}") Duration waitTimeout) {
+    this.idempotencyRecordRepository = idempotencyRecordRepository;
+    this.retention = retention;
+    this.waitTimeout = waitTimeout;
+    this.completed =
+        Caffeine.newBuilder().maximumSize(cacheSize).expireAfterWrite(cacheTtl).build();
+  }
+
+  // Выполняет action не больше одного раза для пары (пользователь, ключ).
+  // action сам открывает транзакцию и вызывает в ней reserve(...) и complete(...)
+  public SucessActionResponse execute(
+      UUID userId, String key, String fingerprint, Supplier<SucessActionResponse> action) {
+    return new SucessActionResponse(
+        once(
+                userId,
+                key,
+                fingerprint,
+                () -> new CompletedRequest(fingerprint, action.get().message(), null))
+            .responseMessage());
+  }
+
+  // То же для принятого в очередь перевода: ответ повтора - id перевода, созданного оригиналом.
+  // action вызывает reserve(...) и complete(record, transferId) в транзакции записи перевода
+  public UUID executeAccepted(UUID userId, String key, String fingerprint, Supplier<UUID> action) {
+    return once(
+            userId, key, fingerprint, () -> new CompletedRequest(fingerprint, null, action.get()))
+        .transferId();
+  }
+
+  private CompletedRequest once(
+      UUID userId, String key, String fingerprint, Supplier<CompletedRequest> action) {
+    String cacheKey = userId + ":" + key;
+    CompletedRequest cached = completed.getIfPresent(cacheKey);
+    if (cached != null) {
+      return cached.replay(fingerprint);
+    }
+
+    CompletableFuture<CompletedRequest> mine = new CompletableFuture<>();
+    CompletableFuture<CompletedRequest> running = inFlight.putIfAbsent(cacheKey, mine);
+    if (running != null) {
+      return await(running).replay(fingerprint);
+    }
+    try {
+      CompletedRequest result =
+          idempotencyRecordRepository
+              .findByUserIdAndIdempotencyKey(userId, key)
+              .map(CompletedRequest::of)
+              .orElseGet(() -> run(userId, key, action));
+      completed.put(cacheKey, result);
+      mine.complete(result);
+      return result.replay(fingerprint);
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(cacheKey, mine);
+    }
+  }
+
+  // Запись вставляется первой в транзакции перевода: дубликат с другого узла блокируется
+  // на уникальном индексе до коммита оригинала, а затем получает нарушение ограничения
+  @Transactional(propagation = Propagation.MANDATORY)
+  public IdempotencyRecord reserve(UUID userId, String key, String fingerprint) {
+    return idempotencyRecordRepository.saveAndFlush(
+        IdempotencyRecord.builder()
+            .userId(userId)
+            .idempotencyKey(key)
+            .requestFingerprint(fingerprint)
+            .createdDate(LocalDateTime.now())
+            .build());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void complete(IdempotencyRecord record, SucessActionResponse response) {
+    idempotencyRecordRepository.save(
+        record.toBuilder().responseMessage(response.message()).build());
+  }
+
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void complete(IdempotencyRecord record, UUID transferId) {
+    idempotencyRecordRepository.save(record.toBuilder().transferId(transferId).build());
+  }
+
+  // Снимает ключ, если принятый перевод пришлось отменить: повтор выполнится заново
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void release(UUID userId, String key) {
+    idempotencyRecordRepository.deleteByUserIdAndIdempotencyKey(userId, key);
+  }
+
+  @Transactional
+  public int purgeExpired() {
+    return idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention));
+  }
+
+  private CompletedRequest run(UUID userId, String key, Supplier<CompletedRequest> action) {
+    try {
+      return action.get();
+    } catch (DataIntegrityViolationException e) {
+      // Тот же ключ успел закоммитить другой узел: отдаем его результат
+      return idempotencyRecordRepository
+          .findByUserIdAndIdempotencyKey(userId, key)
+          .map(CompletedRequest::of)
+          .orElseThrow(() -> e);
+    }
+  }
+
+  private CompletedRequest await(CompletableFuture<CompletedRequest> running) {
+    try {
+      return running.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (ExecutionException e) {
+      // Оригинал завершился ошибкой: дубликат получает тот же ответ
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new IllegalStateException(e.getCause());
+    } catch (TimeoutException e) {
+      throw new IdempotencyKeyConflictException("Запрос с этим Idempotency-Key еще выполняется");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IdempotencyKeyConflictException("Запрос с этим Idempotency-Key еще выполняется");
+    }
+  }
+
+  private record CompletedRequest(String fingerprint, String responseMessage, UUID transferId) {
+    static CompletedRequest of(IdempotencyRecord record) {
+      return new CompletedRequest(
+          record.getRequestFingerprint(), record.getResponseMessage(), record.getTransferId());
+    }
+
+    CompletedRequest replay(String requestFingerprint) {
+      if (!fingerprint.equals(requestFingerprint)) {
+        throw new IdempotencyKeyConflictException();
+      }
+      return this;
+    }
+  }
+}
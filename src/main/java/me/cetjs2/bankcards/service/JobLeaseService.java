@@ -0,0 +1,93 @@
+package me.cetjs2.bankcards.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.JobRunResponse;
+import me.cetjs2.bankcards.entity.JobLease;
+import me.cetjs2.bankcards.exception.JobLeaseLostException;
+import me.cetjs2.bankcards.repository.JobLeaseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Аренда фоновых задач в таблице job_leases: с несколькими узлами окно задачи выполняет один.
+// Аренда продлевается каждой порцией, упавший узел перестает продлевать, и после lease-ttl
+// окно перехватывает другой узел с последнего checkpoint
+@Service
+public class JobLeaseService {
+
+  private final JobLeaseRepository jobLeaseRepository;
+  private final Duration leaseTtl;
+
+  // pid@host и случайный хвост: перезапущенный процесс - другой владелец
+  private final String node =
+      ManagementFactory.getRuntimeMXBean().getName()
+          + "/"
+          + UUID.randomUUID().toString().substring(0, 8);
+
+  public JobLeaseService(
+      JobLeaseRepository jobLeaseRepository,
+      @Value("${bankcards.jobs.lease-ttl:5m}") Duration leaseTtl) {
+    this.jobLeaseRepository = jobLeaseRepository;
+    this.leaseTtl = leaseTtl;
+  }
+
+  // Пусто - окно занято другим узлом или уже выполнено
+  @Transactional
+  public Optional<JobLease> tryAcquire(String job, String window) {
+    LocalDateTime now = LocalDateTime.now();
+    if (jobLeaseRepository.acquire(job, window, node, now, now.plus(leaseTtl)) == 0) {
+      return Optional.empty();
+    }
+    return jobLeaseRepository.findById(job);
+  }
+
+  // Вызывать в транзакции порции: checkpoint коммитится вместе с ее изменениями.
+  // checkpoint null - позиция не меняется
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void checkpoint(String job, String checkpoint, long rows) {
+    LocalDateTime until = LocalDateTime.now().plus(leaseTtl);
+    if (jobLeaseRepository.checkpoint(job, node, checkpoint, rows, until) == 0) {
+      throw new JobLeaseLostException(job);
+    }
+  }
+
+  @Transactional
+  public void finish(String job) {
+    jobLeaseRepository.finish(job, node, LocalDateTime.now());
+  }
+
+  @Transactional
+  public void release(String job) {
+    jobLeaseRepository.release(job, node);
+  }
+
+  @Transactional(readOnly = true)
+  public JobRunResponse getLastRun(String job) {
+    JobLease lease =
+        jobLeaseRepository
+            .findById(job)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown job " + job));
+    boolean running =
+        lease.getFinishedDate() == null
+            && lease.getLeaseUntil() != null
+            && lease.getLeaseUntil().isAfter(LocalDateTime.now());
+    Long durationMillis =
+        lease.getStartedDate() != null && lease.getFinishedDate() != null
+            ? Duration.between(lease.getStartedDate(), lease.getFinishedDate()).toMillis()
+            : null;
+    return new JobRunResponse(
+        lease.getName(),
+        lease.getRunWindow(),
+        lease.getLeaseOwner(),
+        running,
+        lease.getStartedDate(),
+        lease.getFinishedDate(),
+        durationMillis,
+        lease.getRowsAffected());
+  }
+}
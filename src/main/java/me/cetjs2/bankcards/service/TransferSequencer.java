@@ -0,0 +1,176 @@
+package me.cetjs2.bankcards.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Альтернативный режим выполнения переводов (bankcards.transfer.mode=sequencer).
+// Переводы раскладываются по шардам по карте списания, у каждого шарда один поток-писатель:
+// списания одной карты не конкурируют за блокировку строки, а поток коммитит накопившуюся
+// группу переводов одной транзакцией. Каждый перевод группы - под своей точкой сохранения,
+// так что отказ одного не откатывает остальные. HTTP-поток ждет результат своего перевода
+@Service
+public class TransferSequencer {
+  private final TransactionTemplate transactionTemplate;
+  private final EntityManager entityManager;
+  private final boolean enabled;
+  private final int shardCount;
+  private final int queueCapacity;
+  private final int maxGroupSize;
+
+  private final List<Shard> shards = new ArrayList<>();
+
+  public TransferSequencer(
+      TransactionTemplate transactionTemplate,
+      EntityManager entityManager,
+      @Value("${bankcards.transfer.mode:sync}") String mode,
+      @Value("${bankcards.transfer.sequencer.shards:0}") int shards,
+      @Value("${bankcards.transfer.sequencer.queue-capacity:10000}") int queueCapacity,
+      @Value("${bankcards.transfer.sequencer.max-group-size:100}") int maxGroupSize) {
+    this.transactionTemplate = transactionTemplate;
+    this.entityManager = entityManager;
+    this.enabled = "sequencer".equalsIgnoreCase(mode);
+    this.shardCount = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+    this.queueCapacity = queueCapacity;
+    this.maxGroupSize = maxGroupSize;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  @PostConstruct
+  void start() {
+    if (!enabled) {
+      return;
+    }
+    for (int i = 0; i < shardCount; i++) {
+      Shard shard = new Shard(new ArrayBlockingQueue<>(queueCapacity));
+      Thread worker = new Thread(() -> drain(shard), "transfer-sequencer-" + i);
+      worker.setDaemon(true);
+      shard.worker = worker;
+      shards.add(shard);
+      worker.start();
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    shards.forEach(shard -> shard.worker.interrupt());
+  }
+
+  // Выполняет work в транзакции потока шарда и возвращает его результат (или бросает его
+  // исключение) в вызывающем потоке. Полная очередь шарда притормаживает вызывающего
+  public <T> T submit(UUID shardKey, Supplier<T> work) {
+    Task<T> task = new Task<>(work, new CompletableFuture<>());
+    try {
+      shards.get(Math.floorMod(shardKey.hashCode(), shards.size())).queue.put(task);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Перевод прерван до постановки в очередь", e);
+    }
+    try {
+      return task.result.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw e;
+    }
+  }
+
+  private void drain(Shard shard) {
+    List<Task<?>> group = new ArrayList<>(maxGroupSize);
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        group.add(shard.queue.take());
+      } catch (InterruptedException e) {
+        break;
+      }
+      shard.queue.drainTo(group, maxGroupSize - 1);
+      commitGroup(group);
+      group.clear();
+    }
+    // Остановка: никого не оставляем ждать вечно
+    List<Task<?>> rest = new ArrayList<>();
+    shard.queue.drainTo(rest);
+    rest.forEach(
+        task ->
+            task.result.completeExceptionally(
+                new IllegalStateException("Очередь переводов остановлена")));
+  }
+
+  private void commitGroup(List<Task<?>> group) {
+    List<Runnable> completions = new ArrayList<>(group.size());
+    List<Task<?>> retryAlone = new ArrayList<>();
+    try {
+      transactionTemplate.executeWithoutResult(
+          status -> {
+            for (Task<?> task : group) {
+              runInSavepoint(status, task, completions, retryAlone);
+            }
+          });
+    } catch (RuntimeException e) {
+      // Не закоммитилась вся группа (например, Hibernate пометил транзакцию rollback-only
+      // после ошибки в одном из переводов): каждый перевод повторяем отдельной транзакцией
+      group.forEach(this::runAlone);
+      return;
+    }
+    // Результаты отдаются только после коммита группы
+    completions.forEach(Runnable::run);
+    retryAlone.forEach(this::runAlone);
+  }
+
+  private <T> void runInSavepoint(
+      TransactionStatus status, Task<T> task, List<Runnable> completions, List<Task<?>> retry) {
+    Object savepoint = status.createSavepoint();
+    try {
+      T value = task.work.get();
+      // Изменения перевода уходят в БД сразу: после отката соседа контекст очищается
+      entityManager.flush();
+      status.releaseSavepoint(savepoint);
+      completions.add(() -> task.result.complete(value));
+    } catch (RuntimeException e) {
+      status.rollbackToSavepoint(savepoint);
+      entityManager.clear();
+      if (e instanceof ConcurrencyFailureException) {
+        // Взаимоблокировка с другим шардом (например, на полосах общей карты): повторим отдельно
+        retry.add(task);
+      } else {
+        completions.add(() -> task.result.completeExceptionally(e));
+      }
+    }
+  }
+
+  private <T> void runAlone(Task<T> task) {
+    try {
+      task.result.complete(transactionTemplate.execute(status -> task.work.get()));
+    } catch (RuntimeException e) {
+      task.result.completeExceptionally(e);
+    }
+  }
+
+  private record Task<T>(Supplier<T> work, CompletableFuture<T> result) {}
+
+  private static final class Shard {
+    private final BlockingQueue<Task<?>> queue;
+    private Thread worker;
+
+    private Shard(BlockingQueue<Task<?>> queue) {
+      this.queue = queue;
+    }
+  }
+}
@@ -1,59 +1,365 @@
 package me.cetjs2.bankcards.service;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.dto.BatchTransferMode;
+import me.cetjs2.bankcards.dto.BatchTransferRequest;
+import me.cetjs2.bankcards.dto.BatchTransferResponse;
 import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.dto.TransferDirection;
+import me.cetjs2.bankcards.dto.TransferHistoryItem;
+import me.cetjs2.bankcards.dto.TransferHistoryResponse;
+import me.cetjs2.bankcards.dto.TransferItemResult;
+import me.cetjs2.bankcards.dto.TransferItemStatus;
 import me.cetjs2.bankcards.dto.TransferRequest;
 import me.cetjs2.bankcards.entity.Card;
 import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.entity.LedgerEntry;
+import me.cetjs2.bankcards.entity.TransferRecord;
+import me.cetjs2.bankcards.entity.TransferStatus;
 import me.cetjs2.bankcards.exception.CardNotFoundException;
 import me.cetjs2.bankcards.exception.CardPermissionDeniedException;
 import me.cetjs2.bankcards.exception.InsufficientFundsException;
 import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.repository.CardRepository.CardNumberView;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository;
+import me.cetjs2.bankcards.repository.TransferRecordRepository;
+import me.cetjs2.bankcards.repository.TransferRecordRepository.TransferHistoryRow;
 import me.cetjs2.bankcards.util.CardUtil;
+import me.cetjs2.bankcards.util.CursorCodec;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @RequiredArgsConstructor
 @Service
 public class TransferService {
+  // Порядок блокировки строк: тот же, что у PostgreSQL для uuid (беззнаковое сравнение байтов),
+  // чтобы любые пути, блокирующие карты по id, брали блокировки в одном порядке
+  static final Comparator<UUID> LOCK_ORDER =
+      Comparator.comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+          .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
   private final CardRepository cardRepository;
+  private final LedgerEntryRepository ledgerEntryRepository;
+  private final CardLedgerService cardLedgerService;
   private final CardUtil cardUtil;
   private final UserService userService;
+  private final IdempotencyService idempotencyService;
+  private final TransactionTemplate transactionTemplate;
+  private final TransferSequencer transferSequencer;
+  private final TransferRecordRepository transferRecordRepository;
+  private final ApplicationEventPublisher eventPublisher;
 
-  @Transactional
-  public SucessActionResponse transferMoney(TransferRequest request) {
-    Card fromCard =
-        cardRepository
-            .findById(request.fromCardId())
-            .orElseThrow(() -> new CardNotFoundException());
-
-    Card toCard =
-        cardRepository.findById(request.toCardId()).orElseThrow(() -> new CardNotFoundException());
-
-    String currentUserName = userService.getCurrentUser().getUsername();
-    if (!cardRepository.existsByIdAndOwnerUserName(fromCard.getId(), currentUserName)
-        || !cardRepository.existsByIdAndOwnerUserName(toCard.getId(), currentUserName)) {
-      throw new CardPermissionDeniedException(
-          "одна или несколько карт принадлежат другому пользователю");
+  // Начало истории: курсор "позже любой записи"
+  private static final CursorCodec.Position HISTORY_START =
+      new CursorCodec.Position(LocalDateTime.of(9999, 12, 31, 0, 0), new UUID(-1L, -1L));
+
+  // Перевод с заголовком Idempotency-Key: повтор возвращает сохраненный ответ, не трогая cards
+  public SucessActionResponse transferMoney(TransferRequest request, String idempotencyKey) {
+    UUID ownerId = userService.getCurrentUser().id();
+    if (idempotencyKey == null || idempotencyKey.isBlank()) {
+      return execute(request, () -> transferAndRecord(ownerId, request));
     }
-    if (fromCard.getCardStatus() != CardStatus.ACTIVE
-        || toCard.getCardStatus() != CardStatus.ACTIVE) {
-      throw new CardPermissionDeniedException("Карты просрочены или заблокированы");
+    String fingerprint = fingerprint(request);
+    return idempotencyService.execute(
+        ownerId,
+        idempotencyKey,
+        fingerprint,
+        () ->
+            execute(
+                request,
+                () -> {
+                  IdempotencyRecord record =
+                      idempotencyService.reserve(ownerId, idempotencyKey, fingerprint);
+                  SucessActionResponse response = transferAndRecord(ownerId, request);
+                  idempotencyService.complete(record, response);
+                  return response;
+                }));
+  }
+
+  // Канонический вид перевода для Idempotency-Key: 10 и 10.00 - один и тот же запрос
+  static String fingerprint(TransferRequest request) {
+    return request.fromCardId()
+        + ">"
+        + request.toCardId()
+        + ":"
+        + request.sum().stripTrailingZeros().toPlainString();
+  }
+
+  // Единица работы выполняется либо своей транзакцией в потоке запроса, либо в группе
+  // шарда карты списания (bankcards.transfer.mode=sequencer). Все, что зависит от потока
+  // запроса (текущий пользователь), вычисляется до этого вызова
+  private SucessActionResponse execute(
+      TransferRequest request, Supplier<SucessActionResponse> work) {
+    if (transferSequencer.isEnabled()) {
+      return transferSequencer.submit(request.fromCardId(), work);
     }
-    if (request.sum().compareTo(fromCard.getBalance()) > 0) {
-      throw new InsufficientFundsException();
+    return transactionTemplate.execute(status -> work.get());
+  }
+
+  // Синхронный перевод + запись в историю той же транзакцией
+  private SucessActionResponse transferAndRecord(UUID ownerId, TransferRequest request) {
+    SucessActionResponse response = transfer(ownerId, request);
+    transferRecordRepository.save(completedRecord(ownerId, request, response.message()));
+    return response;
+  }
+
+  // Выполняет перевод в уже открытой транзакции от имени ownerId. AsyncTransferService
+  // вызывает его напрямую: запись о переводе у него уже есть
+  SucessActionResponse transfer(UUID ownerId, TransferRequest request) {
+    UUID fromId = request.fromCardId();
+    UUID toId = request.toCardId();
+
+    // Списание блокирует строку карты, зачисление - только вставка в журнал. Порядок id
+    // сохраняем, чтобы встречные переводы A->B и B->A не могли заблокировать друг друга
+    if (LOCK_ORDER.compare(fromId, toId) <= 0) {
+      debit(fromId, ownerId, request.sum());
+      credit(toId, ownerId, request.sum());
+    } else {
+      credit(toId, ownerId, request.sum());
+      debit(fromId, ownerId, request.sum());
     }
-    Card updatedToCard = toCard.toBuilder().balance(toCard.getBalance().add(request.sum())).build();
-    Card updatedFromCard =
-        fromCard.toBuilder().balance(fromCard.getBalance().subtract(request.sum())).build();
-    cardRepository.save(updatedToCard);
-    cardRepository.save(updatedFromCard);
+    eventPublisher.publishEvent(new CardsChangedEvent(List.of(fromId, toId)));
+
+    Map<UUID, String> numbers =
+        cardRepository.findByIdIn(List.of(fromId, toId)).stream()
+            .collect(
+                Collectors.toMap(
+                    CardNumberView::getId, CardNumberView::getCardNumber, (a, b) -> a));
     return new SucessActionResponse(
         "сумма "
             + request.sum().toString()
             + " переведена с карты "
-            + cardUtil.maskCardNumber(updatedFromCard.getCardNumber())
+            + cardUtil.maskCardNumber(numbers.get(fromId))
             + " на карту "
-            + cardUtil.maskCardNumber(updatedToCard.getCardNumber()));
+            + cardUtil.maskCardNumber(numbers.get(toId)));
+  }
+
+  @Transactional
+  public BatchTransferResponse transferBatch(BatchTransferRequest request) {
+    UUID ownerId = userService.getCurrentUser().id();
+    List<TransferRequest> transfers = request.transfers();
+    Set<UUID> cardIds = new HashSet<>();
+    for (TransferRequest transfer : transfers) {
+      cardIds.add(transfer.fromCardId());
+      cardIds.add(transfer.toCardId());
+    }
+
+    // Один запрос на весь пакет: проверка владения и блокировка строк в порядке id
+    Map<UUID, Card> cards =
+        cardRepository.findOwnedForUpdate(cardIds, ownerId).stream()
+            .collect(Collectors.toMap(Card::getId, Function.identity()));
+    // Карты, не вернувшиеся из запроса с фильтром по владельцу: одним запросом выясняем,
+    // какие из них чужие, остальные не существуют
+    Set<UUID> missingIds = new HashSet<>(cardIds);
+    missingIds.removeAll(cards.keySet());
+    Set<UUID> foreignIds =
+        missingIds.isEmpty() ? Set.of() : cardRepository.findExistingIds(missingIds);
+    // Строки заблокированы, поэтому переводы можно последовательно "проиграть" в памяти
+    // поверх текущих остатков (снимок + неучтенный хвост журнала)
+    Map<UUID, BigDecimal> pending = cardLedgerService.getPendingTotals(cards.keySet());
+    Map<UUID, BigDecimal> balances = new HashMap<>();
+    cards
+        .values()
+        .forEach(
+            card -> balances.put(card.getId(), cardLedgerService.currentBalance(card, pending)));
+    Map<UUID, BigDecimal> deltas = new HashMap<>();
+    List<LedgerEntry> entries = new ArrayList<>();
+    List<TransferRecord> records = new ArrayList<>();
+
+    boolean allOrNothing = request.mode() == BatchTransferMode.ALL_OR_NOTHING;
+    List<TransferItemResult> results = new ArrayList<>(transfers.size());
+    int applied = 0;
+    for (int i = 0; i < transfers.size(); i++) {
+      TransferRequest transfer = transfers.get(i);
+      RuntimeException rejection =
+          batchRejection(
+              transfer, cards, foreignIds, balances, allOrNothing ? "Перевод #" + i + ": " : "");
+      if (rejection != null) {
+        if (allOrNothing) {
+          throw rejection;
+        }
+        results.add(new TransferItemResult(i, TransferItemStatus.REJECTED, rejection.getMessage()));
+        continue;
+      }
+      balances.merge(transfer.fromCardId(), transfer.sum().negate(), BigDecimal::add);
+      balances.merge(transfer.toCardId(), transfer.sum(), BigDecimal::add);
+      deltas.merge(transfer.fromCardId(), transfer.sum().negate(), BigDecimal::add);
+      deltas.merge(transfer.toCardId(), transfer.sum(), BigDecimal::add);
+      // Обе записи сразу учтенные: суммы попадают в снимок этой же транзакцией
+      entries.add(
+          cardLedgerService.entry(cards.get(transfer.fromCardId()), transfer.sum().negate(), true));
+      entries.add(cardLedgerService.entry(cards.get(transfer.toCardId()), transfer.sum(), true));
+      records.add(completedRecord(ownerId, transfer, "Перевод выполнен"));
+      results.add(new TransferItemResult(i, TransferItemStatus.APPLIED, "Перевод выполнен"));
+      applied++;
+    }
+
+    // Снимки меняются только на итоговую разницу; снимки и записи журнала уходят в БД
+    // пачками UPDATE/INSERT (hibernate.jdbc.batch_size). Хвост журнала остается для свертки
+    List<Card> updatedCards =
+        cards.values().stream()
+            .filter(card -> deltas.getOrDefault(card.getId(), BigDecimal.ZERO).signum() != 0)
+            .map(
+                card ->
+                    card.toBuilder()
+                        .balance(card.getBalance().add(deltas.get(card.getId())))
+                        .build())
+            .toList();
+    cardRepository.saveAll(updatedCards);
+    if (!updatedCards.isEmpty()) {
+      eventPublisher.publishEvent(
+          new CardsChangedEvent(updatedCards.stream().map(Card::getId).toList()));
+    }
+    ledgerEntryRepository.saveAll(entries);
+    transferRecordRepository.saveAll(records);
+    return new BatchTransferResponse(applied, transfers.size() - applied, results);
+  }
+
+  // История переводов карты (keyset-пагинация). Пользователь видит только свои карты
+  @Transactional(readOnly = true)
+  public TransferHistoryResponse getCardTransfers(
+      UUID cardId, String cursor, int size, String currentUsername, boolean isAdmin) {
+    if (!isAdmin && !cardRepository.existsByIdAndOwnerUserName(cardId, currentUsername)) {
+      if (!cardRepository.existsById(cardId)) {
+        throw new CardNotFoundException("Card not found");
+      }
+      throw new CardPermissionDeniedException("Карта принадлежит другому пользователю");
+    }
+    CursorCodec.Position after = cursor == null ? HISTORY_START : CursorCodec.decode(cursor);
+    // Одна лишняя строка показывает, есть ли следующая страница, без COUNT
+    List<TransferHistoryRow> rows =
+        transferRecordRepository.findCardHistory(cardId, after.date(), after.id(), size + 1);
+    List<TransferHistoryRow> page = rows.subList(0, Math.min(size, rows.size()));
+
+    Set<UUID> pageCardIds = new HashSet<>();
+    page.forEach(
+        row -> {
+          pageCardIds.add(row.getFromCardId());
+          pageCardIds.add(row.getToCardId());
+        });
+    Map<UUID, String> numbers =
+        pageCardIds.isEmpty()
+            ? Map.of()
+            : cardRepository.findByIdIn(pageCardIds).stream()
+                .collect(Collectors.toMap(CardNumberView::getId, CardNumberView::getCardNumber));
+    List<TransferHistoryItem> items =
+        page.stream()
+            .map(
+                row ->
+                    new TransferHistoryItem(
+                        row.getId(),
+                        row.getFromCardId().equals(cardId)
+                            ? TransferDirection.OUTGOING
+                            : TransferDirection.INCOMING,
+                        cardUtil.maskCardNumber(numbers.get(row.getFromCardId())),
+                        cardUtil.maskCardNumber(numbers.get(row.getToCardId())),
+                        row.getAmount(),
+                        row.getCreatedDate()))
+            .toList();
+
+    String nextCursor = null;
+    if (rows.size() > size) {
+      TransferHistoryRow last = page.get(page.size() - 1);
+      nextCursor = CursorCodec.encode(last.getCreatedDate(), last.getId());
+    }
+    return new TransferHistoryResponse(items, nextCursor);
+  }
+
+  private TransferRecord completedRecord(UUID ownerId, TransferRequest request, String message) {
+    LocalDateTime now = LocalDateTime.now();
+    return TransferRecord.builder()
+        .ownerId(ownerId)
+        .fromCardId(request.fromCardId())
+        .toCardId(request.toCardId())
+        .amount(request.sum())
+        .status(TransferStatus.COMPLETED)
+        .message(message)
+        .createdDate(now)
+        .completedDate(now)
+        .build();
+  }
+
+  private RuntimeException batchRejection(
+      TransferRequest transfer,
+      Map<UUID, Card> cards,
+      Set<UUID> foreignIds,
+      Map<UUID, BigDecimal> balances,
+      String prefix) {
+    for (UUID cardId : List.of(transfer.fromCardId(), transfer.toCardId())) {
+      Card card = cards.get(cardId);
+      if (card == null) {
+        return foreignIds.contains(cardId)
+            ? new CardPermissionDeniedException(
+                prefix + "одна или несколько карт принадлежат другому пользователю")
+            : new CardNotFoundException(prefix + "Card not found");
+      }
+      if (card.getEffectiveStatus() != CardStatus.ACTIVE) {
+        return new CardPermissionDeniedException(prefix + "Карты просрочены или заблокированы");
+      }
+    }
+    if (transfer.sum().compareTo(balances.get(transfer.fromCardId())) > 0) {
+      return new InsufficientFundsException(prefix + "Insufficient funds for this transaction");
+    }
+    return null;
+  }
+
+  // Истекшая карта не участвует в переводах и до того, как ночная задача сменит ее статус:
+  // срок проверяют сами условные запросы списания и зачисления
+  private static LocalDate currentMonthStart() {
+    return YearMonth.now().atDay(1);
+  }
+
+  private void debit(UUID cardId, UUID ownerId, BigDecimal sum) {
+    LocalDate monthStart = currentMonthStart();
+    if (cardRepository.debit(cardId, ownerId, sum, monthStart) == 1) {
+      return;
+    }
+    // Снимка не хватает: сворачиваем накопленные зачисления и полосы этой карты и пробуем еще раз
+    if (cardLedgerService.foldIntoSnapshot(cardId)
+        && cardRepository.debit(cardId, ownerId, sum, monthStart) == 1) {
+      return;
+    }
+    throw rejectionReason(cardId, ownerId);
+  }
+
+  private void credit(UUID cardId, UUID ownerId, BigDecimal sum) {
+    // Случайная полоса для "полосатых" карт: параллельные зачисления расходятся по разным строкам
+    int slot = ThreadLocalRandom.current().nextInt(Integer.MAX_VALUE);
+    if (ledgerEntryRepository.appendCredit(cardId, ownerId, sum, slot, currentMonthStart()) == 0) {
+      throw rejectionReason(cardId, ownerId);
+    }
+  }
+
+  // Холодный путь: условный UPDATE не затронул строку, выясняем причину для ответа клиенту.
+  // Исключение откатывает транзакцию вместе с уже выполненной половиной перевода
+  private RuntimeException rejectionReason(UUID cardId, UUID ownerId) {
+    Card card = cardRepository.findById(cardId).orElseThrow(() -> new CardNotFoundException());
+    if (!card.getOwner().getId().equals(ownerId)) {
+      return new CardPermissionDeniedException(
+          "одна или несколько карт принадлежат другому пользователю");
+    }
+    if (card.getEffectiveStatus() != CardStatus.ACTIVE) {
+      return new CardPermissionDeniedException("Карты просрочены или заблокированы");
+    }
+    return new InsufficientFundsException();
   }
 }
@@ -1,19 +1,21 @@
 package me.cetjs2.bankcards.service;
 
-import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
-  public User getCurrentUser() {
+  // Пользователь из claims токена, не managed-сущность: для связей JPA нужен
+  // userRepository.getReferenceById(id())
+  public AuthenticatedUser getCurrentUser() {
     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
     if (authentication == null || !authentication.isAuthenticated()) {
       return null;
     }
 
-    return (User) authentication.getPrincipal();
+    return (AuthenticatedUser) authentication.getPrincipal();
   }
 }
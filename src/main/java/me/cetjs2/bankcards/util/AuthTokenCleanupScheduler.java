@@ -0,0 +1,18 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.service.AuthTokenService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class AuthTokenCleanupScheduler {
+
+  private final AuthTokenService authTokenService;
+
+  @Scheduled(cron = "0 45 * * * *")
+  public void purgeExpiredTokens() {
+    authTokenService.purgeExpired();
+  }
+}
@@ -1,21 +1,149 @@
 package me.cetjs2.bankcards.util;
 
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import me.cetjs2.bankcards.dto.CardListOrder;
+import me.cetjs2.bankcards.entity.JobLease;
+import me.cetjs2.bankcards.exception.JobLeaseLostException;
+import me.cetjs2.bankcards.service.CardExpiryChunk;
 import me.cetjs2.bankcards.service.CardService;
-import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.context.event.EventListener;
+import me.cetjs2.bankcards.service.JobLeaseService;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+// Фоновая уборка: записывает EXPIRED в строки карт с истекшим сроком. На корректность не влияет -
+// операции и ответы сверяют срок сами (CardStatus.effectiveAt), поэтому задача идет редко и
+// в тихие часы. Порции по chunk-size, каждая - своя короткая транзакция.
+// Окно - календарный месяц: его выполняет один узел, владелец аренды JobLeaseService,
+// остальные запуски месяца только проверяют аренду. Окно открывается ровно на смене месяца
+// (expiry-rollover-cron), плановый запуск в тихие часы повторяет неудавшееся.
+// Индекс читается только от последнего завершенного окна: карты с более ранним сроком уже
+// переведены, новые карты выпускаются со сроком в будущем и сами попадают в срез своего месяца.
+// Работа окна пропорциональна числу истекших за месяц карт, а не размеру таблицы.
+// Вместе с порцией коммитится checkpoint, перехвативший окно узел продолжает с него.
+// Последний запуск - GET /cards/expiry/last-run. Окно, пропущенное за время простоя,
+// догоняется после запуска через StartupCatchUpRunner.
+// Метрики: cards.expiry.expired (всего переведено в EXPIRED), cards.expiry.run (время прогонов),
+// cards.expiry.progress и cards.expiry.rate - строк и строк в секунду в текущем (последнем) прогоне
 @Component
-@RequiredArgsConstructor
-public class CardExpiryScheduler {
+public class CardExpiryScheduler implements StartupCatchUpJob {
+
+  public static final String JOB = "card-expiry";
+
+  // Меньше любого id: срез месяца начинается с его первой карты
+  private static final UUID WINDOW_START_ID = new UUID(0L, 0L);
 
   private final CardService cardService;
+  private final JobLeaseService jobLeaseService;
+  private final TransactionTemplate transactionTemplate;
+  private final int chunkSize;
+
+  private final Counter expiredCounter;
+  private final Timer runTimer;
+  private final AtomicLong runProgress = new AtomicLong();
+  private final AtomicLong runStartedNanos = new AtomicLong();
+  private final AtomicLong runElapsedNanos = new AtomicLong();
+
+  public CardExpiryScheduler(
+      CardService cardService,
+      JobLeaseService jobLeaseService,
+      TransactionTemplate transactionTemplate,
+      MeterRegistry meterRegistry,
+      @Value("${bankcards.cards.expiry-chunk-size:1000}") int chunkSize) {
+    this.cardService = cardService;
+    this.jobLeaseService = jobLeaseService;
+    this.transactionTemplate = transactionTemplate;
+    this.chunkSize = chunkSize;
+    this.expiredCounter = meterRegistry.counter("cards.expiry.expired");
+    this.runTimer = meterRegistry.timer("cards.expiry.run");
+    meterRegistry.gauge("cards.expiry.progress", runProgress);
+    meterRegistry.gauge("cards.expiry.rate", this, CardExpiryScheduler::rowsPerSecond);
+  }
 
-  @EventListener(ApplicationReadyEvent.class)
-  @Scheduled(cron = "0 0 19 * * *")
+  @Scheduled(cron = "${bankcards.cards.expiry-rollover-cron:0 0 0 1 * *}")
+  @Scheduled(cron = "${bankcards.cards.expiry-cron:0 30 3 * * *}")
   public void checkCardsExpiry() {
-    cardService.blockExpiredCards();
+    YearMonth today = YearMonth.now();
+    Optional<JobLease> lease = jobLeaseService.tryAcquire(JOB, today.toString());
+    if (lease.isEmpty()) {
+      return;
+    }
+    long started = System.nanoTime();
+    runStartedNanos.set(started);
+    runElapsedNanos.set(0);
+    runProgress.set(0);
+    try {
+      CursorCodec.CardPosition position = startPosition(lease.get());
+      do {
+        CursorCodec.CardPosition after = position;
+        CardExpiryChunk chunk =
+            transactionTemplate.execute(
+                status -> {
+                  CardExpiryChunk c = cardService.expireCardsChunk(today, after, chunkSize);
+                  jobLeaseService.checkpoint(JOB, encode(c.next()), c.expired());
+                  return c;
+                });
+        expiredCounter.increment(chunk.expired());
+        runProgress.addAndGet(chunk.expired());
+        position = chunk.next();
+      } while (position != null);
+      jobLeaseService.finish(JOB);
+    } catch (JobLeaseLostException e) {
+      // Окно продолжает другой узел
+    } catch (RuntimeException e) {
+      jobLeaseService.release(JOB);
+      throw e;
+    } finally {
+      long elapsed = System.nanoTime() - started;
+      runElapsedNanos.set(elapsed);
+      runTimer.record(elapsed, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public String name() {
+    return JOB;
+  }
+
+  @Override
+  public void catchUp() {
+    checkCardsExpiry();
+  }
+
+  // Прерванное окно - с checkpoint, иначе - с первого срока после последнего завершенного окна
+  private static CursorCodec.CardPosition startPosition(JobLease lease) {
+    if (lease.getCheckpoint() != null) {
+      return CursorCodec.decodeCard(lease.getCheckpoint());
+    }
+    if (lease.getCompletedWindow() != null) {
+      return new CursorCodec.CardPosition(
+          CardListOrder.EXPIRATION_DATE,
+          YearMonth.parse(lease.getCompletedWindow()),
+          WINDOW_START_ID);
+    }
+    return null;
+  }
+
+  private static String encode(CursorCodec.CardPosition position) {
+    return position != null
+        ? CursorCodec.encode(position.order(), position.expirationDate(), position.id())
+        : null;
+  }
+
+  private double rowsPerSecond() {
+    long elapsed = runElapsedNanos.get();
+    if (elapsed == 0) {
+      // Прогон еще идет: скорость на текущий момент
+      elapsed = System.nanoTime() - runStartedNanos.get();
+    }
+    return runStartedNanos.get() == 0 || elapsed <= 0 ? 0 : runProgress.get() * 1e9 / elapsed;
   }
 }
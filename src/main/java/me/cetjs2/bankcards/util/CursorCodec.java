@@ -0,0 +1,63 @@
+package me.cetjs2.bankcards.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Base64;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardListOrder;
+import me.cetjs2.bankcards.exception.InvalidCursorException;
+
+// Курсор keyset-пагинации: позиция последней отданной строки (дата, id) в base64url.
+// Для клиента это непрозрачная строка, которую он возвращает как есть
+public final class CursorCodec {
+
+  private CursorCodec() {}
+
+  public static String encode(LocalDateTime date, UUID id) {
+    return toBase64(date + "|" + id);
+  }
+
+  public static Position decode(String cursor) {
+    try {
+      String[] parts = fromBase64(cursor, 2);
+      return new Position(LocalDateTime.parse(parts[0]), UUID.fromString(parts[1]));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  // Курсор списка карт помнит и порядок, в котором выдан: с другим порядком он не сработает
+  public static String encode(CardListOrder order, YearMonth expirationDate, UUID id) {
+    return toBase64(order + "|" + expirationDate + "|" + id);
+  }
+
+  public static CardPosition decodeCard(String cursor) {
+    try {
+      String[] parts = fromBase64(cursor, 3);
+      return new CardPosition(
+          CardListOrder.valueOf(parts[0]), YearMonth.parse(parts[1]), UUID.fromString(parts[2]));
+    } catch (RuntimeException e) {
+      throw new InvalidCursorException();
+    }
+  }
+
+  private static String toBase64(String raw) {
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String[] fromBase64(String cursor, int parts) {
+    String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    String[] split = raw.split("\\|", -1);
+    if (split.length != parts) {
+      throw new IllegalArgumentException(raw);
+    }
+    return split;
+  }
+
+  public record Position(LocalDateTime date, UUID id) {}
+
+  public record CardPosition(CardListOrder order, YearMonth expirationDate, UUID id) {}
+}
@@ -0,0 +1,32 @@
+package me.cetjs2.bankcards.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+// Сильные ETag для условных GET: хэш содержимого ответа, а не сериализованного JSON.
+// Записи (record) дают детерминированный toString по всем полям, поэтому одинаковые данные на
+// любом узле дают один и тот же ETag, а любое изменение поля - другой
+public final class ETags {
+
+  private ETags() {}
+
+  public static String of(Object... parts) {
+    MessageDigest sha;
+    try {
+      sha = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (Object part : parts) {
+      sha.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+      sha.update((byte) 0);
+    }
+    // 128 бит хватает, чтобы совпадение разных ответов было практически невозможно
+    return '"'
+        + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(sha.digest(), 16))
+        + '"';
+  }
+}
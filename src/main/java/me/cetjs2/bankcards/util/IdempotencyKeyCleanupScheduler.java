@@ -0,0 +1,18 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.service.IdempotencyService;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyCleanupScheduler {
+
+  private final IdempotencyService idempotencyService;
+
+  @Scheduled(cron = "0 15 * * * *")
+  public void purgeExpiredKeys() {
+    idempotencyService.purgeExpired();
+  }
+}
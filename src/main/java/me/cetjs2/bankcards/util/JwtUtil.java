@@ -1,61 +1,133 @@
 package me.cetjs2.bankcards.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.Date;
+import java.util.UUID;
 import java.util.function.Function;
 import javax.crypto.SecretKey;
-import org.springframework.security.core.userdetails.UserDetails;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
+import me.cetjs2.bankcards.security.UserCredentials;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class JwtUtil {
   private final String SECRET = "super-secret-key-that-must-be-very-long-and-secure-2026";
-  private final long EXPIRATION_TIME = 86_400_000; // 24 часа
 
-  private SecretKey getSigningKey() {
-    return Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+  // Claims, из которых JwtAuthFilter собирает пользователя без запроса к БД
+  private static final String USER_ID_CLAIM = "uid";
+  private static final String ROLE_CLAIM = "role";
+  private static final String TOKEN_VERSION_CLAIM = "ver";
+
+  // Ключ и парсер потокобезопасны и строятся один раз, а не на каждый запрос
+  private final SecretKey signingKey = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+  private final JwtParser parser = Jwts.parser().verifyWith(signingKey).build();
+
+  // Уже проверенные токены: клиенты ходят с одним токеном часами, повтор не тратит время
+  // на HMAC и разбор JSON. Ключ - SHA-256 токена (сам токен в памяти не держим),
+  // запись живет ровно до истечения токена
+  private final Cache<ByteBuffer, Claims> verifiedTokens;
+
+  public JwtUtil(@Value("${bankcards.jwt.verified-cache-size:10000}") long verifiedCacheSize) {
+    this.verifiedTokens =
+        Caffeine.newBuilder()
+            .maximumSize(verifiedCacheSize)
+            .expireAfter(new UntilTokenExpiry())
+            .build();
   }
 
-  public String generateToken(String username) {
+  // Срок и id токена задает AuthTokenService: по jti токен можно отозвать до истечения
+  public String generateToken(UserCredentials user, UUID tokenId, Instant expiresAt) {
     return Jwts.builder()
-        .subject(username)
+        .id(tokenId.toString())
+        .subject(user.username())
+        .claim(USER_ID_CLAIM, user.id().toString())
+        .claim(ROLE_CLAIM, user.role().name())
+        .claim(TOKEN_VERSION_CLAIM, user.tokenVersion())
         .issuedAt(new Date())
-        .expiration(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-        .signWith(getSigningKey()) // Алгоритм HS256 подберется автоматически по ключу
+        .expiration(Date.from(expiresAt))
+        .signWith(signingKey) // Алгоритм HS256 подберется автоматически по ключу
         .compact();
   }
 
-  public String extractUsername(String token) {
-    return extractClaim(token, Claims::getSubject);
+  // Один разбор и одна проверка подписи и срока на токен. Невалидный или просроченный
+  // токен - JwtException, в кэш попадают только прошедшие проверку
+  public Claims validate(String token) {
+    ByteBuffer digest = digest(token);
+    Claims cached = verifiedTokens.getIfPresent(digest);
+    if (cached != null) {
+      // Caffeine вычищает записи лениво: срок перепроверяем сами
+      if (cached.getExpiration().getTime() > System.currentTimeMillis()) {
+        return cached;
+      }
+      verifiedTokens.invalidate(digest);
+      throw new ExpiredJwtException(null, cached, "JWT expired");
+    }
+    Claims claims = parser.parseSignedClaims(token).getPayload();
+    if (claims.getExpiration() != null) {
+      verifiedTokens.put(digest, claims);
+    }
+    return claims;
   }
 
-  // Тот самый метод, которого не хватало фильтру
-  public boolean isTokenValid(String token, UserDetails userDetails) {
-    final String username = extractUsername(token);
-    return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+  public String extractUsername(String token) {
+    return validate(token).getSubject();
   }
 
-  private boolean isTokenExpired(String token) {
-    return extractExpiration(token).before(new Date());
+  public AuthenticatedUser toPrincipal(Claims claims) {
+    return new AuthenticatedUser(
+        UUID.fromString(claims.get(USER_ID_CLAIM, String.class)),
+        claims.getSubject(),
+        Role.valueOf(claims.get(ROLE_CLAIM, String.class)));
   }
 
-  private Date extractExpiration(String token) {
-    return extractClaim(token, Claims::getExpiration);
+  public int extractTokenVersion(Claims claims) {
+    return claims.get(TOKEN_VERSION_CLAIM, Integer.class);
   }
 
   public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-    final Claims claims = extractAllClaims(token);
-    return claimsResolver.apply(claims);
+    return claimsResolver.apply(validate(token));
   }
 
-  private Claims extractAllClaims(String token) {
-    return Jwts.parser()
-        .verifyWith(getSigningKey()) // Новый синтаксис JJWT 0.12+
-        .build()
-        .parseSignedClaims(token)
-        .getPayload();
+  private static ByteBuffer digest(String token) {
+    try {
+      return ByteBuffer.wrap(
+          MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class UntilTokenExpiry implements Expiry<ByteBuffer, Claims> {
+    @Override
+    public long expireAfterCreate(ByteBuffer key, Claims claims, long currentTime) {
+      long millisLeft = claims.getExpiration().getTime() - System.currentTimeMillis();
+      return Math.max(0, millisLeft) * 1_000_000;
+    }
+
+    @Override
+    public long expireAfterUpdate(
+        ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+      return expireAfterCreate(key, claims, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(
+        ByteBuffer key, Claims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
   }
 }
@@ -0,0 +1,30 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.service.CardLedgerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class LedgerSnapshotScheduler {
+
+  private final CardLedgerService cardLedgerService;
+
+  @Value("${bankcards.ledger.fold-batch-size:1000}")
+  private int foldBatchSize;
+
+  @Value("${bankcards.ledger.max-batches-per-run:100}")
+  private int maxBatchesPerRun;
+
+  // Каждая порция - своя короткая транзакция, чтобы не держать блокировки строк карт
+  @Scheduled(fixedDelayString = "${bankcards.ledger.snapshot-interval:5s}")
+  public void foldLedger() {
+    for (int i = 0; i < maxBatchesPerRun; i++) {
+      if (cardLedgerService.foldPendingEntries(foldBatchSize) == 0) {
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.service.AsyncTransferService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class PendingTransferSweeper {
+
+  private final AsyncTransferService asyncTransferService;
+
+  @Value("${bankcards.transfer.async.sweep-batch-size:500}")
+  private int sweepBatchSize;
+
+  @Scheduled(fixedDelayString = "${bankcards.transfer.async.sweep-interval:30s}")
+  public void resubmitStaleTransfers() {
+    asyncTransferService.resubmitStale(sweepBatchSize);
+  }
+}
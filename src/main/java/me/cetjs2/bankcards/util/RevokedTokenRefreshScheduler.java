@@ -0,0 +1,19 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.security.RevokedTokenRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class RevokedTokenRefreshScheduler {
+
+  private final RevokedTokenRegistry revokedTokenRegistry;
+
+  // Интервал = задержка, с которой отзыв с другого узла начинает действовать на этом
+  @Scheduled(fixedDelayString = "${bankcards.jwt.version-refresh-interval:5s}")
+  public void refreshRevokedTokens() {
+    revokedTokenRegistry.refresh();
+  }
+}
@@ -0,0 +1,10 @@
+package me.cetjs2.bankcards.util;
+
+// Догоняющая работа после запуска (пропущенные за время простоя окна задач).
+// Выполняется StartupCatchUpRunner в фоне, когда узел уже принимает трафик
+public interface StartupCatchUpJob {
+
+  String name();
+
+  void catchUp();
+}
@@ -0,0 +1,76 @@
+package me.cetjs2.bankcards.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+// Догоняющие задачи запуска не держат готовность узла: стартуют через catch-up-delay после
+// ACCEPTING_TRAFFIC на своем пуле не больше чем по catch-up-concurrency одновременно.
+// Время до готовности - стандартная метрика application.ready.time, время догоняющих задач -
+// startup.catch-up{job, outcome=success|failure}
+@Component
+public class StartupCatchUpRunner {
+
+  private final List<StartupCatchUpJob> jobs;
+  private final MeterRegistry meterRegistry;
+  private final Duration delay;
+  private final ScheduledThreadPoolExecutor executor;
+  private final AtomicBoolean started = new AtomicBoolean();
+
+  public StartupCatchUpRunner(
+      List<StartupCatchUpJob> jobs,
+      MeterRegistry meterRegistry,
+      @Value("${bankcards.startup.catch-up-delay:30s}") Duration delay,
+      @Value("${bankcards.startup.catch-up-concurrency:1}") int concurrency) {
+    this.jobs = jobs;
+    this.meterRegistry = meterRegistry;
+    this.delay = delay;
+    this.executor =
+        new ScheduledThreadPoolExecutor(
+            concurrency, new CustomizableThreadFactory("startup-catch-up-"));
+  }
+
+  // Готовность может снова смениться на ACCEPTING_TRAFFIC, догоняем один раз за запуск
+  @EventListener
+  public void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+    if (event.getState() != ReadinessState.ACCEPTING_TRAFFIC
+        || !started.compareAndSet(false, true)) {
+      return;
+    }
+    for (StartupCatchUpJob job : jobs) {
+      executor.schedule(() -> run(job), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  private void run(StartupCatchUpJob job) {
+    long startedNanos = System.nanoTime();
+    String outcome = "failure";
+    try {
+      job.catchUp();
+      outcome = "success";
+    } finally {
+      // Ошибка задачи не мешает остальным: следующий плановый запуск повторит работу
+      Timer.builder("startup.catch-up")
+          .tag("job", job.name())
+          .tag("outcome", outcome)
+          .register(meterRegistry)
+          .record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    executor.shutdownNow();
+  }
+}
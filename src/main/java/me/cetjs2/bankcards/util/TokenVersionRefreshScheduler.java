@@ -0,0 +1,19 @@
+package me.cetjs2.bankcards.util;
+
+import lombok.RequiredArgsConstructor;
+import me.cetjs2.bankcards.security.TokenVersionRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class TokenVersionRefreshScheduler {
+
+  private final TokenVersionRegistry tokenVersionRegistry;
+
+  // Интервал = максимальная задержка, с которой узел узнает об отзыве токенов
+  @Scheduled(fixedDelayString = "${bankcards.jwt.version-refresh-interval:5s}")
+  public void refreshTokenVersions() {
+    tokenVersionRegistry.refresh();
+  }
+}
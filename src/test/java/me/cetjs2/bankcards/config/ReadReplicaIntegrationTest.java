@@ -0,0 +1,197 @@
+package me.cetjs2.bankcards.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import javax.sql.DataSource;
+import me.cetjs2.bankcards.entity.Card;
+import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.RevokedToken;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.repository.RevokedTokenRepository;
+import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
+import me.cetjs2.bankcards.util.LedgerSnapshotScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+// Две независимые БД в памяти вместо основной и реплики: репликации между ними нет, поэтому
+// по тому, какая из них видит строку, видно, куда ушел запрос. Схему Hibernate создает в
+// основной, в реплику она копируется скриптом H2
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+      "spring.datasource.username=sa",
+      "spring.datasource.password=",
+      "bankcards.datasource.replica.url=jdbc:h2:mem:replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+      "bankcards.datasource.read-your-writes=0s",
+      "spring.liquibase.enabled=false",
+      "spring.jpa.hibernate.ddl-auto=create"
+    })
+@AutoConfigureMockMvc(addFilters = false)
+class ReadReplicaIntegrationTest {
+
+  @Autowired
+  @Qualifier("primaryDataSource")
+  private DataSource primaryDataSource;
+
+  @Autowired
+  @Qualifier("replicaDataSource")
+  private DataSource replicaDataSource;
+
+  // Свертка журнала - нативный SQL PostgreSQL, H2 его не разберет
+  @MockitoBean private LedgerSnapshotScheduler ledgerSnapshotScheduler;
+
+  @Autowired private MockMvc mockMvc;
+  @Autowired private UserRepository userRepository;
+  @Autowired private CardRepository cardRepository;
+  @Autowired private RevokedTokenRepository revokedTokenRepository;
+
+  private JdbcTemplate primary;
+  private JdbcTemplate replica;
+
+  @AfterEach
+  void tearDown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @BeforeEach
+  void setUp() {
+    primary = new JdbcTemplate(primaryDataSource);
+    replica = new JdbcTemplate(replicaDataSource);
+    if (replica.queryForObject(
+            "select count(*) from information_schema.tables where table_name = 'CARDS'",
+            Integer.class)
+        == 0) {
+      primary.queryForList("SCRIPT NODATA", String.class).forEach(replica::execute);
+    }
+  }
+
+  @Test
+  @DisplayName(
+      "Запись уходит в основную БД, readOnly-чтение - в реплику, загрузчик кэша - в основную")
+  void readOnlyGoesToReplica() {
+    User owner =
+        userRepository.save(
+            User.builder()
+                .userName("replica_" + UUID.randomUUID())
+                .password("secret")
+                .role(Role.USER)
+                .build());
+    Card card =
+        cardRepository.save(
+            Card.builder()
+                .owner(owner)
+                .cardNumber(UUID.randomUUID().toString())
+                .cardStatus(CardStatus.ACTIVE)
+                .expirationDate(YearMonth.now().plusYears(1))
+                .balance(new BigDecimal("10.00"))
+                .build());
+
+    String countById = "select count(*) from cards where id = ?";
+    assertThat(primary.queryForObject(countById, Integer.class, card.getId())).isEqualTo(1);
+    assertThat(replica.queryForObject(countById, Integer.class, card.getId())).isZero();
+
+    // @Transactional(readOnly = true): реплика, карты в ней нет
+    assertThat(
+            cardRepository
+                .findOwnerViewsAfterId(owner.getUsername(), new UUID(0L, 0L), PageRequest.of(0, 10))
+                .getContent())
+        .isEmpty();
+    // Без транзакции (загрузчик CardViewCache): основная БД
+    assertThat(cardRepository.findViewById(card.getId())).isPresent();
+  }
+
+  @Test
+  @DisplayName("Запрос: чтение и затем запись (удаление карты) - обе в основной БД")
+  void deleteCard_WritesToPrimary() throws Exception {
+    User admin = saveUser(Role.ADMIN);
+    Card card = saveCard(admin);
+    replicate("users", admin.getId());
+    replicate("cards", card.getId());
+    signIn(admin);
+
+    mockMvc.perform(delete("/cards/delete/{id}", card.getId())).andExpect(status().isOk());
+
+    String countById = "select count(*) from cards where id = ?";
+    assertThat(primary.queryForObject(countById, Integer.class, card.getId())).isZero();
+    // Реплика не тронута: ее догоняет репликация, а не запись приложения
+    assertThat(replica.queryForObject(countById, Integer.class, card.getId())).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Проверка отзыва токена читает основную БД, а не отстающую реплику")
+  void revokedTokenCheckReadsPrimary() {
+    UUID jti = UUID.randomUUID();
+    revokedTokenRepository.save(
+        RevokedToken.builder()
+            .jti(jti)
+            .expiresDate(LocalDateTime.now().plusMinutes(15))
+            .createdDate(LocalDateTime.now())
+            .build());
+
+    assertThat(revokedTokenRepository.existsByJti(jti)).isTrue();
+  }
+
+  private User saveUser(Role role) {
+    return userRepository.save(
+        User.builder()
+            .userName("replica_" + UUID.randomUUID())
+            .password("secret")
+            .role(role)
+            .build());
+  }
+
+  private Card saveCard(User owner) {
+    return cardRepository.save(
+        Card.builder()
+            .owner(owner)
+            .cardNumber(UUID.randomUUID().toString())
+            .cardStatus(CardStatus.ACTIVE)
+            .expirationDate(YearMonth.now().plusYears(1))
+            .balance(new BigDecimal("10.00"))
+            .build());
+  }
+
+  // Имитация репликации: строка основной БД переносится в реплику как есть
+  private void replicate(String table, UUID id) {
+    Map<String, Object> row = primary.queryForMap("select * from " + table + " where id = ?", id);
+    replica.update(
+        "insert into "
+            + table
+            + " ("
+            + String.join(", ", row.keySet())
+            + ") values ("
+            + String.join(", ", Collections.nCopies(row.size(), "?"))
+            + ")",
+        row.values().toArray());
+  }
+
+  private void signIn(User user) {
+    AuthenticatedUser principal = AuthenticatedUser.from(user);
+    SecurityContextHolder.getContext()
+        .setAuthentication(
+            new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+  }
+}
@@ -0,0 +1,111 @@
+package me.cetjs2.bankcards.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class ReplicaRoutingDataSourceTest {
+
+  private DataSource primary;
+  private DataSource replica;
+  private Connection primaryConnection;
+  private Connection replicaConnection;
+  private ReplicaRoutingDataSource routing;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    primary = mock(DataSource.class);
+    replica = mock(DataSource.class);
+    primaryConnection = mock(Connection.class);
+    replicaConnection = mock(Connection.class);
+    when(primary.getConnection()).thenReturn(primaryConnection);
+    when(replica.getConnection()).thenReturn(replicaConnection);
+    routing =
+        new ReplicaRoutingDataSource(
+            primary, replica, new ReadYourWritesTracker(Duration.ofMinutes(1), 100));
+    SecurityContextHolder.getContext()
+        .setAuthentication(new UsernamePasswordAuthenticationToken("ivan_gold", null));
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    TransactionSynchronizationManager.setActualTransactionActive(false);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    SecurityContextHolder.clearContext();
+  }
+
+  private void beginTransaction(boolean readOnly) {
+    TransactionSynchronizationManager.initSynchronization();
+    TransactionSynchronizationManager.setActualTransactionActive(true);
+    TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+  }
+
+  private void commit() {
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(TransactionSynchronization::afterCommit);
+    tearDown();
+  }
+
+  @Test
+  @DisplayName("Read-only транзакция читает с реплики")
+  void readOnly_Replica() throws Exception {
+    beginTransaction(true);
+
+    assertThat(routing.getConnection()).isSameAs(replicaConnection);
+  }
+
+  @Test
+  @DisplayName("Пишущая транзакция и работа без транзакции идут в основную БД")
+  void write_Primary() throws Exception {
+    assertThat(routing.getConnection()).isSameAs(primaryConnection);
+
+    beginTransaction(false);
+    assertThat(routing.getConnection()).isSameAs(primaryConnection);
+  }
+
+  @Test
+  @DisplayName("После своей записи пользователь читает с основной БД, другие - с реплики")
+  void readYourWrites_Sticky() throws Exception {
+    beginTransaction(false);
+    routing.getConnection();
+    commit();
+
+    SecurityContextHolder.getContext()
+        .setAuthentication(new UsernamePasswordAuthenticationToken("ivan_gold", null));
+    beginTransaction(true);
+    assertThat(routing.getConnection()).isSameAs(primaryConnection);
+    tearDown();
+
+    SecurityContextHolder.getContext()
+        .setAuthentication(new UsernamePasswordAuthenticationToken("petr_silver", null));
+    beginTransaction(true);
+    assertThat(routing.getConnection()).isSameAs(replicaConnection);
+  }
+
+  @Test
+  @DisplayName("Откаченная запись не закрепляет пользователя за основной БД")
+  void rolledBack_NotSticky() throws Exception {
+    beginTransaction(false);
+    routing.getConnection();
+    tearDown();
+
+    SecurityContextHolder.getContext()
+        .setAuthentication(new UsernamePasswordAuthenticationToken("ivan_gold", null));
+    beginTransaction(true);
+    assertThat(routing.getConnection()).isSameAs(replicaConnection);
+  }
+}
@@ -1,13 +1,24 @@
 package me.cetjs2.bankcards.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.util.UUID;
 import me.cetjs2.bankcards.dto.AuthRequest;
+import me.cetjs2.bankcards.dto.AuthTokensResponse;
+import me.cetjs2.bankcards.dto.RefreshTokenRequest;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.exception.InvalidRefreshTokenException;
+import me.cetjs2.bankcards.exception.LoginThrottledException;
+import me.cetjs2.bankcards.security.RevokedTokenRegistry;
+import me.cetjs2.bankcards.security.TokenVersionRegistry;
+import me.cetjs2.bankcards.security.UserCredentials;
+import me.cetjs2.bankcards.service.AuthTokenService;
 import me.cetjs2.bankcards.util.JwtUtil;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -44,6 +55,9 @@ class AuthControllerTest {
   @MockitoBean private JwtUtil jwtUtil;
   @MockitoBean private AuthenticationManager authenticationManager;
   @MockitoBean private PasswordEncoder passwordEncoder;
+  @MockitoBean private TokenVersionRegistry tokenVersionRegistry;
+  @MockitoBean private RevokedTokenRegistry revokedTokenRegistry;
+  @MockitoBean private AuthTokenService authTokenService;
 
   @MockitoBean
   private org.springframework.security.core.userdetails.UserDetailsService userDetailsService;
@@ -54,9 +68,12 @@ class AuthControllerTest {
     AuthRequest request = new AuthRequest("user", "password");
     String mockToken = "mocked-jwt-token";
 
+    UserCredentials user = new UserCredentials(UUID.randomUUID(), "user", "hash", Role.USER, 0);
+
     when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
-        .thenReturn(null);
-    when(jwtUtil.generateToken("user")).thenReturn(mockToken);
+        .thenReturn(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    when(authTokenService.issue(user))
+        .thenReturn(new AuthTokensResponse(mockToken, "refresh-1", 900));
 
     mockMvc
         .perform(
@@ -64,7 +81,53 @@ class AuthControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
         .andExpect(status().isOk())
-        .andExpect(jsonPath("$.token").value(mockToken));
+        .andExpect(jsonPath("$.token").value(mockToken))
+        .andExpect(jsonPath("$.refreshToken").value("refresh-1"))
+        .andExpect(jsonPath("$.expiresIn").value(900));
+  }
+
+  @Test
+  @DisplayName("Refresh: обмен refresh-токена на новую пару")
+  void refresh_Success() throws Exception {
+    when(authTokenService.refresh("refresh-1"))
+        .thenReturn(new AuthTokensResponse("access-2", "refresh-2", 900));
+
+    mockMvc
+        .perform(
+            post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh-1"))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.token").value("access-2"))
+        .andExpect(jsonPath("$.refreshToken").value("refresh-2"));
+  }
+
+  @Test
+  @DisplayName("Refresh: 401 для уже использованного refresh-токена")
+  void refresh_Reused() throws Exception {
+    when(authTokenService.refresh("refresh-1"))
+        .thenThrow(new InvalidRefreshTokenException("Refresh token reuse detected"));
+
+    mockMvc
+        .perform(
+            post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh-1"))))
+        .andExpect(status().isUnauthorized())
+        .andExpect(jsonPath("$.message").value("Refresh token reuse detected"));
+  }
+
+  @Test
+  @DisplayName("Logout-all: отзыв всех токенов пользователя по refresh-токену")
+  void logoutAll_Success() throws Exception {
+    mockMvc
+        .perform(
+            post("/auth/logout-all")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RefreshTokenRequest("refresh-1"))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Выход выполнен на всех устройствах"));
+    verify(authTokenService).logoutAll("refresh-1");
   }
 
   @Test
@@ -84,6 +147,23 @@ class AuthControllerTest {
         .andExpect(jsonPath("$.message").value("Invalid username or password"));
   }
 
+  @Test
+  @DisplayName("Login: 429 с Retry-After, когда пул проверки паролей переполнен")
+  void login_Throttled() throws Exception {
+    AuthRequest request = new AuthRequest("user", "password");
+
+    when(authenticationManager.authenticate(any(UsernamePasswordAuthenticationToken.class)))
+        .thenThrow(new LoginThrottledException());
+
+    mockMvc
+        .perform(
+            post("/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().string("Retry-After", "1"));
+  }
+
   @Test
   @DisplayName("Login: Ошибка 400 при пустых полях (валидация)")
   void login_ValidationError() throws Exception {
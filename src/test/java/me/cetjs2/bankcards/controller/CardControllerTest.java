@@ -1,6 +1,10 @@
 package me.cetjs2.bankcards.controller;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -8,10 +12,16 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.time.YearMonth;
+import java.util.List;
 import java.util.UUID;
 import me.cetjs2.bankcards.dto.*;
 import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.TransferStatus;
+import me.cetjs2.bankcards.exception.TransferQueueFullException;
+import me.cetjs2.bankcards.security.RevokedTokenRegistry;
+import me.cetjs2.bankcards.security.TokenVersionRegistry;
 import me.cetjs2.bankcards.service.*;
 import me.cetjs2.bankcards.util.JwtUtil;
 import org.junit.jupiter.api.DisplayName;
@@ -44,10 +54,15 @@ class CardControllerTest {
   @MockitoBean private CardService cardService;
   @MockitoBean private BlockRequestService blockRequestService;
   @MockitoBean private TransferService transferService;
+  @MockitoBean private AsyncTransferService asyncTransferService;
+  @MockitoBean private CardExportService cardExportService;
+  @MockitoBean private JobLeaseService jobLeaseService;
 
   // Необходимые заглушки для того, чтобы контекст безопасности не падал при старте
   @MockitoBean private UserDetailsService userDetailsService;
   @MockitoBean private JwtUtil jwtUtil;
+  @MockitoBean private TokenVersionRegistry tokenVersionRegistry;
+  @MockitoBean private RevokedTokenRegistry revokedTokenRegistry;
 
   @Test
   @DisplayName("GET /cards/view/{id} - Проверка всех полей ответа")
@@ -62,17 +77,39 @@ class CardControllerTest {
             YearMonth.of(2028, 12),
             new BigDecimal("1500.50"));
 
-    when(cardService.getCardInfo(id)).thenReturn(response);
+    when(cardService.getCardInfo(id)).thenReturn(new ETagged<>(response, "\"v1\""));
 
     mockMvc
         .perform(get("/cards/view/{id}", id))
         .andExpect(status().isOk())
+        .andExpect(header().string("ETag", "\"v1\""))
         .andExpect(jsonPath("$.id").value(id.toString()))
         .andExpect(jsonPath("$.cardNumber").value("4444 4*** 1111"))
         .andExpect(jsonPath("$.expirationDate").value("12/28"))
         .andExpect(jsonPath("$.balance").value(1500.50));
   }
 
+  @Test
+  @DisplayName("GET /cards/view/{id} - Совпавший If-None-Match дает 304 без тела")
+  void getCardInfo_NotModified() throws Exception {
+    UUID id = UUID.randomUUID();
+    CardViewResponse response =
+        new CardViewResponse(
+            id,
+            "4444 4*** 1111",
+            "ivan_gold",
+            CardStatus.ACTIVE,
+            YearMonth.of(2028, 12),
+            new BigDecimal("1500.50"));
+    when(cardService.getCardInfo(id)).thenReturn(new ETagged<>(response, "\"v1\""));
+
+    mockMvc
+        .perform(get("/cards/view/{id}", id).header("If-None-Match", "\"v1\""))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", "\"v1\""))
+        .andExpect(content().string(""));
+  }
+
   @Test
   @DisplayName("POST /cards/new - Успешное создание карты")
   void createCard_Success() throws Exception {
@@ -103,18 +140,69 @@ class CardControllerTest {
   void transfer_Success() throws Exception {
     TransferRequest request =
         new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"));
-    when(transferService.transferMoney(any()))
+    when(transferService.transferMoney(any(), isNull()))
+        .thenReturn(new SucessActionResponse("Перевод выполнен"));
+
+    mockMvc
+        .perform(
+            post("/cards/transfer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Перевод выполнен"));
+  }
+
+  @Test
+  @DisplayName("POST /cards/transfer - Заголовок Idempotency-Key передается в сервис")
+  void transfer_WithIdempotencyKey() throws Exception {
+    TransferRequest request =
+        new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"));
+    when(transferService.transferMoney(any(), eq("retry-42")))
         .thenReturn(new SucessActionResponse("Перевод выполнен"));
 
     mockMvc
         .perform(
             post("/cards/transfer")
+                .header("Idempotency-Key", "retry-42")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.message").value("Перевод выполнен"));
   }
 
+  @Test
+  @DisplayName("POST /cards/transfer/batch - Пакетный перевод")
+  void transferBatch_Success() throws Exception {
+    var request =
+        new BatchTransferRequest(
+            List.of(new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.TEN)),
+            BatchTransferMode.BEST_EFFORT);
+    when(transferService.transferBatch(any()))
+        .thenReturn(
+            new BatchTransferResponse(
+                1, 0, List.of(new TransferItemResult(0, TransferItemStatus.APPLIED, "ok"))));
+
+    mockMvc
+        .perform(
+            post("/cards/transfer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.applied").value(1))
+        .andExpect(jsonPath("$.results[0].status").value("APPLIED"));
+  }
+
+  @Test
+  @DisplayName("POST /cards/transfer/batch - Ошибка валидации (пустой пакет)")
+  void transferBatch_Empty() throws Exception {
+    mockMvc
+        .perform(
+            post("/cards/transfer/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"transfers\": []}"))
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   @DisplayName("POST /cards/new - Ошибка валидации (дата в прошлом)")
   void createCard_InvalidDate() throws Exception {
@@ -140,4 +228,166 @@ class CardControllerTest {
         .andExpect(status().isOk())
         .andExpect(jsonPath("$.message").value("Удалена"));
   }
+
+  @Test
+  @DisplayName("PATCH /cards/striping/{id} - Разбиение остатка на полосы")
+  void setStriping_Success() throws Exception {
+    UUID id = UUID.randomUUID();
+    when(cardService.setStriping(id, 16)).thenReturn(new SucessActionResponse("Разбит"));
+
+    mockMvc
+        .perform(
+            patch("/cards/striping/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CardStripingRequest(16))))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.message").value("Разбит"));
+  }
+
+  @Test
+  @DisplayName("PATCH /cards/striping/{id} - Слишком много полос")
+  void setStriping_TooMany() throws Exception {
+    mockMvc
+        .perform(
+            patch("/cards/striping/{id}", UUID.randomUUID())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new CardStripingRequest(1000))))
+        .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  @DisplayName("POST /cards/transfer?async=true - 202 и ссылка на состояние перевода")
+  void transferAsync_Accepted() throws Exception {
+    TransferRequest request =
+        new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"));
+    UUID transferId = UUID.randomUUID();
+    when(asyncTransferService.submit(any(), any()))
+        .thenReturn(
+            new TransferStatusResponse(
+                transferId,
+                TransferStatus.PENDING,
+                request.fromCardId(),
+                request.toCardId(),
+                request.sum(),
+                null,
+                LocalDateTime.now(),
+                null));
+
+    mockMvc
+        .perform(
+            post("/cards/transfer")
+                .param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isAccepted())
+        .andExpect(header().string("Location", "http://localhost/cards/transfer/" + transferId))
+        .andExpect(jsonPath("$.status").value("PENDING"));
+    verify(transferService, never()).transferMoney(any(), any());
+  }
+
+  @Test
+  @DisplayName("POST /cards/transfer?async=true - Idempotency-Key передается в сервис")
+  void transferAsync_IdempotencyKey() throws Exception {
+    TransferRequest request =
+        new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"));
+    UUID transferId = UUID.randomUUID();
+    when(asyncTransferService.submit(any(), eq("key-1")))
+        .thenReturn(
+            new TransferStatusResponse(
+                transferId,
+                TransferStatus.PENDING,
+                request.fromCardId(),
+                request.toCardId(),
+                request.sum(),
+                null,
+                LocalDateTime.now(),
+                null));
+
+    mockMvc
+        .perform(
+            post("/cards/transfer")
+                .param("async", "true")
+                .header("Idempotency-Key", "key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isAccepted())
+        .andExpect(jsonPath("$.id").value(transferId.toString()));
+  }
+
+  @Test
+  @DisplayName("POST /cards/transfer?async=true - переполненная очередь отвечает 429")
+  void transferAsync_QueueFull() throws Exception {
+    TransferRequest request =
+        new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("100.00"));
+    when(asyncTransferService.submit(any(), any())).thenThrow(new TransferQueueFullException());
+
+    mockMvc
+        .perform(
+            post("/cards/transfer")
+                .param("async", "true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+        .andExpect(status().isTooManyRequests())
+        .andExpect(header().exists("Retry-After"));
+  }
+
+  @Test
+  @DisplayName("GET /cards/transfer/{id} - Состояние перевода")
+  void getTransferStatus() throws Exception {
+    UUID transferId = UUID.randomUUID();
+    when(asyncTransferService.getStatus(transferId))
+        .thenReturn(
+            new TransferStatusResponse(
+                transferId,
+                TransferStatus.FAILED,
+                UUID.randomUUID(),
+                UUID.randomUUID(),
+                new BigDecimal("100.00"),
+                "Insufficient funds for this transaction",
+                LocalDateTime.now(),
+                LocalDateTime.now()));
+
+    mockMvc
+        .perform(get("/cards/transfer/{id}", transferId))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.status").value("FAILED"))
+        .andExpect(jsonPath("$.message").value("Insufficient funds for this transaction"));
+  }
+
+  @Test
+  @DisplayName("GET /cards/export - CSV-выгрузка по владельцу пишется прямо в ответ")
+  void exportCards_Csv() throws Exception {
+    mockMvc
+        .perform(get("/cards/export").param("user", "ivan_gold").param("format", "CSV"))
+        .andExpect(status().isOk())
+        .andExpect(content().contentType("text/csv;charset=UTF-8"))
+        .andExpect(header().string("Content-Disposition", "attachment; filename=cards.csv"));
+
+    verify(cardExportService).export(eq("ivan_gold"), eq(CardExportFormat.CSV), any());
+  }
+
+  @Test
+  @DisplayName("GET /cards/expiry/last-run - окно, длительность и число истекших карт")
+  void getExpiryLastRun() throws Exception {
+    LocalDateTime started = LocalDateTime.of(2026, 10, 18, 19, 0);
+    when(jobLeaseService.getLastRun("card-expiry"))
+        .thenReturn(
+            new JobRunResponse(
+                "card-expiry",
+                "2026-10",
+                "1@node-a/3f2a9c1d",
+                false,
+                started,
+                started.plusSeconds(2),
+                2000L,
+                12000));
+
+    mockMvc
+        .perform(get("/cards/expiry/last-run"))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.window").value("2026-10"))
+        .andExpect(jsonPath("$.running").value(false))
+        .andExpect(jsonPath("$.durationMillis").value(2000))
+        .andExpect(jsonPath("$.rowsAffected").value(12000));
+  }
 }
@@ -0,0 +1,43 @@
+package me.cetjs2.bankcards.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import jakarta.persistence.EntityManager;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+
+// Схему создает Hibernate в H2: миграции Liquibase написаны под PostgreSQL
+@DataJpaTest(
+    properties = {"spring.liquibase.enabled=false", "spring.jpa.hibernate.ddl-auto=create-drop"})
+class UserRepositoryTest {
+
+  @Autowired private UserRepository userRepository;
+  @Autowired private EntityManager entityManager;
+
+  @Test
+  @DisplayName("Отзыв токенов поднимает версию в самом UPDATE и ставит время изменения")
+  void bumpTokenVersion() {
+    User user =
+        userRepository.saveAndFlush(
+            User.builder().userName("ivan_gold").password("secret").role(Role.USER).build());
+
+    assertThat(userRepository.bumpTokenVersion(user.getId())).isEqualTo(1);
+    assertThat(userRepository.bumpTokenVersion(user.getId())).isEqualTo(1);
+    assertThat(userRepository.bumpTokenVersion(UUID.randomUUID())).isZero();
+    entityManager.clear();
+
+    User bumped = userRepository.findById(user.getId()).orElseThrow();
+    assertThat(bumped.getTokenVersion()).isEqualTo(2);
+    assertThat(bumped.getTokenVersionDate()).isNotNull();
+    assertThat(
+            userRepository.findTokenVersionsChangedSince(
+                bumped.getTokenVersionDate().minusSeconds(1)))
+        .extracting(UserRepository.TokenVersionView::getTokenVersion)
+        .containsExactly(2);
+  }
+}
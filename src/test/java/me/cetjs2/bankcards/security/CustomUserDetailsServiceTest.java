@@ -0,0 +1,81 @@
+package me.cetjs2.bankcards.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+class CustomUserDetailsServiceTest {
+
+  private UserRepository userRepository;
+  private SimpleMeterRegistry meterRegistry;
+  private CustomUserDetailsService service;
+
+  private final User user =
+      User.builder()
+          .id(UUID.randomUUID())
+          .userName("ivan_gold")
+          .password("$2a$10$hash")
+          .role(Role.USER)
+          .tokenVersion(2)
+          .build();
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+    service =
+        new CustomUserDetailsService(userRepository, meterRegistry, 100, Duration.ofMinutes(5));
+  }
+
+  @Test
+  @DisplayName("Повторный логин берет снимок пользователя из кэша, без запроса к БД")
+  void loadUserByUsername_Cached() {
+    when(userRepository.findByUserName("ivan_gold")).thenReturn(Optional.of(user));
+
+    UserCredentials first = service.loadUserByUsername("ivan_gold");
+    UserCredentials second = service.loadUserByUsername("ivan_gold");
+
+    assertThat(first)
+        .isEqualTo(new UserCredentials(user.getId(), "ivan_gold", "$2a$10$hash", Role.USER, 2));
+    assertThat(second).isSameAs(first);
+    verify(userRepository, times(1)).findByUserName("ivan_gold");
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Изменение пароля или роли сбрасывает снимок: следующий логин читает БД")
+  void onCredentialsChanged_Evicts() {
+    when(userRepository.findByUserName("ivan_gold")).thenReturn(Optional.of(user));
+    service.loadUserByUsername("ivan_gold");
+
+    service.onCredentialsChanged(new UserCredentialsChangedEvent("ivan_gold"));
+    service.loadUserByUsername("ivan_gold");
+
+    verify(userRepository, times(2)).findByUserName("ivan_gold");
+  }
+
+  @Test
+  @DisplayName("Неизвестный логин - исключение, в кэш не попадает")
+  void loadUserByUsername_NotFound() {
+    when(userRepository.findByUserName("ghost")).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> service.loadUserByUsername("ghost"))
+        .isInstanceOf(UsernameNotFoundException.class);
+    assertThatThrownBy(() -> service.loadUserByUsername("ghost"))
+        .isInstanceOf(UsernameNotFoundException.class);
+    verify(userRepository, times(2)).findByUserName("ghost");
+  }
+}
@@ -0,0 +1,138 @@
+package me.cetjs2.bankcards.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.exception.LoginThrottledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordVerificationBulkheadTest {
+
+  private PasswordEncoder delegate;
+  private PasswordVerificationBulkhead bulkhead;
+  private final ExecutorService clients = Executors.newFixedThreadPool(2);
+
+  @BeforeEach
+  void setUp() {
+    delegate = mock(PasswordEncoder.class);
+    // Один поток проверки и место в очереди на одну проверку
+    bulkhead = new PasswordVerificationBulkhead(delegate, 1, 1, Duration.ofSeconds(5));
+  }
+
+  @AfterEach
+  void tearDown() {
+    bulkhead.shutdown();
+    clients.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Проверка пароля выполняется делегатом на пуле")
+  void matches_Delegates() {
+    when(delegate.matches("secret", "hash")).thenReturn(true);
+
+    assertThat(bulkhead.matches("secret", "hash")).isTrue();
+    assertThat(bulkhead.matches("wrong", "hash")).isFalse();
+  }
+
+  @Test
+  @DisplayName("Пул и очередь заняты - логин сразу отклоняется")
+  void matches_RejectedWhenSaturated() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(delegate.matches(any(), any()))
+        .thenAnswer(
+            inv -> {
+              started.countDown();
+              release.await(5, TimeUnit.SECONDS);
+              return true;
+            });
+
+    clients.submit(() -> bulkhead.matches("a", "hash")); // выполняется
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    clients.submit(() -> bulkhead.matches("b", "hash")); // ждет в очереди
+    waitForQueued();
+
+    try {
+      assertThatThrownBy(() -> bulkhead.matches("c", "hash"))
+          .isInstanceOf(LoginThrottledException.class);
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName("Проверка не дождалась своей очереди за timeout - 429 вместо ожидания")
+  void matches_TimedOut() {
+    bulkhead.shutdown();
+    bulkhead = new PasswordVerificationBulkhead(delegate, 1, 1, Duration.ofMillis(50));
+    when(delegate.matches(any(), any()))
+        .thenAnswer(
+            inv -> {
+              Thread.sleep(1_000);
+              return true;
+            });
+
+    assertThatThrownBy(() -> bulkhead.matches("a", "hash"))
+        .isInstanceOf(LoginThrottledException.class);
+  }
+
+  @Test
+  @DisplayName("Отмененная по timeout проверка из очереди освобождает место для следующего логина")
+  void matches_TimedOutReleasesQueueSlot() throws Exception {
+    bulkhead.shutdown();
+    bulkhead = new PasswordVerificationBulkhead(delegate, 1, 1, Duration.ofMillis(100));
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    // Как и BCrypt, проверка не реагирует на прерывание и занимает поток до конца
+    when(delegate.matches(any(), any()))
+        .thenAnswer(
+            inv -> {
+              started.countDown();
+              awaitUninterruptibly(release);
+              return true;
+            });
+
+    clients.submit(() -> bulkhead.matches("a", "hash")); // занимает единственный поток
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    try {
+      assertThatThrownBy(() -> bulkhead.matches("b", "hash")) // ждет в очереди и отменяется
+          .isInstanceOf(LoginThrottledException.class);
+      assertThat(bulkhead.queuedVerifications()).isZero();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private static void awaitUninterruptibly(CountDownLatch latch) {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (latch.getCount() > 0 && System.nanoTime() < deadline) {
+      try {
+        latch.await(10, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ignored) {
+        // прерывание игнорируется намеренно
+      }
+    }
+  }
+
+  private void waitForQueued() throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (bulkhead.queuedVerifications() == 0) {
+      if (System.nanoTime() > deadline) {
+        throw new AssertionError("Проверка не встала в очередь");
+      }
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package me.cetjs2.bankcards.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.RevokedToken;
+import me.cetjs2.bankcards.repository.RevokedTokenRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class RevokedTokenRegistryTest {
+
+  private RevokedTokenRepository repository;
+  private RevokedTokenRegistry registry;
+
+  private final LocalDateTime expires = LocalDateTime.now().plusMinutes(10);
+  private final Date expiresAt = Date.from(expires.atZone(ZoneId.systemDefault()).toInstant());
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(RevokedTokenRepository.class);
+    registry = new RevokedTokenRegistry(repository, Duration.ofMinutes(15), 1 << 16, Duration.ZERO);
+  }
+
+  @Test
+  @DisplayName("Токен не попал в фильтр - отзыв проверяется без обращения к БД")
+  void isRevoked_FilterMiss() {
+    when(repository.findByCreatedDateAfterAndExpiresDateAfter(any(), any())).thenReturn(List.of());
+    registry.refresh();
+
+    assertThat(registry.isRevoked(UUID.randomUUID(), expiresAt)).isFalse();
+    verify(repository, never()).existsByJti(any());
+  }
+
+  @Test
+  @DisplayName("Попадание в фильтр подтверждается по БД")
+  void isRevoked_FilterHit() {
+    UUID jti = UUID.randomUUID();
+    RevokedToken revoked =
+        RevokedToken.builder()
+            .jti(jti)
+            .expiresDate(expires)
+            .createdDate(LocalDateTime.now())
+            .build();
+    when(repository.findByCreatedDateAfterAndExpiresDateAfter(any(), any()))
+        .thenReturn(List.of(revoked));
+    when(repository.existsByJti(jti)).thenReturn(true);
+    registry.refresh();
+
+    assertThat(registry.isRevoked(jti, expiresAt)).isTrue();
+    verify(repository).existsByJti(jti);
+  }
+
+  @Test
+  @DisplayName("Обновление добирает только отзывы после последнего увиденного")
+  void refresh_Incremental() {
+    LocalDateTime created = LocalDateTime.now().minusSeconds(5);
+    RevokedToken revoked =
+        RevokedToken.builder()
+            .jti(UUID.randomUUID())
+            .expiresDate(expires)
+            .createdDate(created)
+            .build();
+    when(repository.findByCreatedDateAfterAndExpiresDateAfter(any(), any()))
+        .thenReturn(List.of(revoked))
+        .thenReturn(List.of());
+
+    registry.refresh();
+    registry.refresh();
+
+    verify(repository).findByCreatedDateAfterAndExpiresDateAfter(eq(created), any());
+  }
+}
@@ -0,0 +1,84 @@
+package me.cetjs2.bankcards.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.repository.UserRepository.TokenVersionView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+class TokenVersionRegistryTest {
+
+  private UserRepository userRepository;
+  private ApplicationEventPublisher eventPublisher;
+  private TokenVersionRegistry registry;
+
+  private final UUID userId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    userRepository = mock(UserRepository.class);
+    eventPublisher = mock(ApplicationEventPublisher.class);
+    registry = new TokenVersionRegistry(userRepository, eventPublisher, Duration.ofMinutes(1));
+  }
+
+  @Test
+  @DisplayName("Пользователь без смены версии: действуют токены версии 0")
+  void isCurrent_UnknownUser() {
+    when(userRepository.findTokenVersionsChangedSince(any())).thenReturn(List.of());
+    registry.refresh();
+
+    assertThat(registry.isCurrent(userId, 0)).isTrue();
+  }
+
+  @Test
+  @DisplayName("Версия поднята: старые токены отклоняются, новые проходят")
+  void isCurrent_RevokedVersion() {
+    LocalDateTime changed = LocalDateTime.of(2026, 10, 18, 12, 0);
+    TokenVersionView revoked = view(userId, 2, changed);
+    when(userRepository.findTokenVersionsChangedSince(any())).thenReturn(List.of(revoked));
+    registry.refresh();
+
+    assertThat(registry.isCurrent(userId, 1)).isFalse();
+    assertThat(registry.isCurrent(userId, 2)).isTrue();
+    // Снимок пользователя для логина сбрасывается
+    verify(eventPublisher).publishEvent(new UserCredentialsChangedEvent("ivan_gold"));
+  }
+
+  @Test
+  @DisplayName(
+      "Следующее обновление добирает изменения с последней увиденной даты минус перекрытие")
+  void refresh_Incremental() {
+    LocalDateTime changed = LocalDateTime.of(2026, 10, 18, 12, 0);
+    TokenVersionView revoked = view(userId, 2, changed);
+    TokenVersionView late = view(userId, 1, changed.minusSeconds(30));
+    when(userRepository.findTokenVersionsChangedSince(any()))
+        .thenReturn(List.of(revoked))
+        .thenReturn(List.of(late));
+
+    registry.refresh();
+    registry.refresh();
+
+    verify(userRepository).findTokenVersionsChangedSince(changed.minusMinutes(1));
+    // Запоздавшая строка со старой версией не откатывает уже известную
+    assertThat(registry.isCurrent(userId, 1)).isFalse();
+    verify(eventPublisher, times(1)).publishEvent(any(UserCredentialsChangedEvent.class));
+  }
+
+  private static TokenVersionView view(UUID id, int version, LocalDateTime date) {
+    TokenVersionView view = mock(TokenVersionView.class);
+    when(view.getId()).thenReturn(id);
+    lenient().when(view.getUserName()).thenReturn("ivan_gold");
+    when(view.getTokenVersion()).thenReturn(version);
+    when(view.getTokenVersionDate()).thenReturn(date);
+    return view;
+  }
+}
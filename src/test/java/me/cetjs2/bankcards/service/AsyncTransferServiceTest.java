@@ -0,0 +1,282 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.dto.TransferRequest;
+import me.cetjs2.bankcards.dto.TransferStatusResponse;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.TransferRecord;
+import me.cetjs2.bankcards.entity.TransferStatus;
+import me.cetjs2.bankcards.exception.IdempotencyKeyConflictException;
+import me.cetjs2.bankcards.exception.InsufficientFundsException;
+import me.cetjs2.bankcards.exception.TransferNotFoundException;
+import me.cetjs2.bankcards.exception.TransferQueueFullException;
+import me.cetjs2.bankcards.repository.IdempotencyRecordRepository;
+import me.cetjs2.bankcards.repository.TransferRecordRepository;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class AsyncTransferServiceTest {
+
+  private TransferRecordRepository repository;
+  private TransferService transferService;
+  private TransactionTemplate transactionTemplate;
+  private TransactionStatus status;
+  private IdempotencyRecordRepository idempotencyRecordRepository;
+  private AsyncTransferService asyncTransferService;
+
+  private final AuthenticatedUser user =
+      new AuthenticatedUser(UUID.randomUUID(), "ivan_gold", Role.USER);
+  private final TransferRequest request =
+      new TransferRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("10.00"));
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(TransferRecordRepository.class);
+    transferService = mock(TransferService.class);
+    transactionTemplate = mock(TransactionTemplate.class);
+    status = mock(TransactionStatus.class);
+    idempotencyRecordRepository = mock(IdempotencyRecordRepository.class);
+    UserService userService = mock(UserService.class);
+    when(userService.getCurrentUser()).thenReturn(user);
+    when(repository.save(any()))
+        .thenAnswer(
+            inv -> {
+              TransferRecord record = inv.getArgument(0);
+              return record.getId() != null
+                  ? record
+                  : record.toBuilder().id(UUID.randomUUID()).build();
+            });
+    // Один исполнитель и место в очереди на один перевод
+    asyncTransferService =
+        new AsyncTransferService(
+            repository,
+            transferService,
+            userService,
+            new IdempotencyService(
+                idempotencyRecordRepository,
+                100,
+                Duration.ofMinutes(10),
+                Duration.ofHours(24),
+                Duration.ofSeconds(30)),
+            transactionTemplate,
+            1,
+            1,
+            Duration.ofSeconds(30));
+  }
+
+  @AfterEach
+  void tearDown() {
+    asyncTransferService.shutdown();
+  }
+
+  @Test
+  @DisplayName("Перевод сохраняется как PENDING и сразу возвращается клиенту")
+  void submit_ReturnsPending() {
+    TransferStatusResponse response = asyncTransferService.submit(request, null);
+
+    assertThat(response.id()).isNotNull();
+    assertThat(response.status()).isEqualTo(TransferStatus.PENDING);
+    assertThat(response.sum()).isEqualByComparingTo("10.00");
+    verify(repository).save(argThat(r -> r.getOwnerId().equals(user.id())));
+  }
+
+  @Test
+  @DisplayName("Переполненная очередь - отказ без записи в БД")
+  void submit_QueueFull() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(
+            inv -> {
+              started.countDown();
+              release.await(5, TimeUnit.SECONDS);
+              return null;
+            })
+        .when(transactionTemplate)
+        .executeWithoutResult(any());
+
+    asyncTransferService.submit(request, null); // выполняется
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+    asyncTransferService.submit(request, null); // ждет в очереди
+
+    try {
+      assertThatThrownBy(() -> asyncTransferService.submit(request, null))
+          .isInstanceOf(TransferQueueFullException.class);
+      verify(repository, times(2)).save(any());
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  @DisplayName(
+      "Idempotency-Key: ключ и PENDING-запись сохраняются одной транзакцией, ключ хранит id")
+  void submit_IdempotencyKey_Reserved() {
+    runTransactions();
+    when(idempotencyRecordRepository.saveAndFlush(any())).thenAnswer(inv -> inv.getArgument(0));
+
+    TransferStatusResponse response = asyncTransferService.submit(request, "key-1");
+
+    assertThat(response.status()).isEqualTo(TransferStatus.PENDING);
+    verify(transactionTemplate).execute(any());
+    verify(idempotencyRecordRepository)
+        .saveAndFlush(
+            argThat(
+                r ->
+                    r.getIdempotencyKey().equals("key-1")
+                        && r.getRequestFingerprint().startsWith("async:")));
+    verify(idempotencyRecordRepository).save(argThat(r -> response.id().equals(r.getTransferId())));
+  }
+
+  @Test
+  @DisplayName("Idempotency-Key: повтор возвращает принятый перевод без новой записи")
+  void submit_IdempotencyKey_Replay() {
+    TransferRecord original = pending();
+    when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(user.id(), "key-1"))
+        .thenReturn(
+            Optional.of(
+                IdempotencyRecord.builder()
+                    .userId(user.id())
+                    .idempotencyKey("key-1")
+                    .requestFingerprint("async:" + TransferService.fingerprint(request))
+                    .transferId(original.getId())
+                    .createdDate(LocalDateTime.now())
+                    .build()));
+    when(repository.findByIdAndOwnerId(original.getId(), user.id()))
+        .thenReturn(Optional.of(original));
+
+    TransferStatusResponse response = asyncTransferService.submit(request, "key-1");
+
+    assertThat(response.id()).isEqualTo(original.getId());
+    assertThat(response.status()).isEqualTo(TransferStatus.PENDING);
+    verify(repository, never()).save(any());
+    verify(idempotencyRecordRepository, never()).saveAndFlush(any());
+    verifyNoInteractions(transactionTemplate);
+  }
+
+  @Test
+  @DisplayName("Idempotency-Key: тот же ключ с другим телом отклоняется")
+  void submit_IdempotencyKey_Conflict() {
+    when(idempotencyRecordRepository.findByUserIdAndIdempotencyKey(user.id(), "key-1"))
+        .thenReturn(
+            Optional.of(
+                IdempotencyRecord.builder()
+                    .userId(user.id())
+                    .idempotencyKey("key-1")
+                    .requestFingerprint("async:другой")
+                    .transferId(UUID.randomUUID())
+                    .createdDate(LocalDateTime.now())
+                    .build()));
+
+    assertThatThrownBy(() -> asyncTransferService.submit(request, "key-1"))
+        .isInstanceOf(IdempotencyKeyConflictException.class);
+    verify(repository, never()).save(any());
+  }
+
+  @Test
+  @DisplayName("Выполнение: перевод и статус COMPLETED в одной транзакции")
+  void process_Completed() {
+    TransferRecord record = pending();
+    runCallbacks();
+    when(repository.claimPending(record.getId())).thenReturn(Optional.of(record));
+    when(transferService.transfer(eq(user.id()), any()))
+        .thenReturn(new SucessActionResponse("готово"));
+
+    asyncTransferService.process(record.getId());
+
+    verify(repository)
+        .save(
+            argThat(
+                r ->
+                    r.getStatus() == TransferStatus.COMPLETED
+                        && r.getMessage().equals("готово")
+                        && r.getCompletedDate() != null));
+    verify(status, never()).rollbackToSavepoint(any());
+  }
+
+  @Test
+  @DisplayName("Отказ по правилам перевода: откат к точке сохранения и статус FAILED")
+  void process_Failed() {
+    TransferRecord record = pending();
+    Object savepoint = new Object();
+    runCallbacks();
+    when(status.createSavepoint()).thenReturn(savepoint);
+    when(repository.claimPending(record.getId())).thenReturn(Optional.of(record));
+    when(transferService.transfer(any(), any())).thenThrow(new InsufficientFundsException());
+
+    asyncTransferService.process(record.getId());
+
+    verify(status).rollbackToSavepoint(savepoint);
+    verify(repository).save(argThat(r -> r.getStatus() == TransferStatus.FAILED));
+  }
+
+  @Test
+  @DisplayName("Перевод уже выполняется или выполнен - повторный захват ничего не делает")
+  void process_AlreadyClaimed() {
+    runCallbacks();
+    when(repository.claimPending(any())).thenReturn(Optional.empty());
+
+    asyncTransferService.process(UUID.randomUUID());
+
+    verifyNoInteractions(transferService);
+    verify(repository, never()).save(any());
+  }
+
+  @Test
+  @DisplayName("Чужой перевод не виден")
+  void getStatus_Foreign() {
+    when(repository.findByIdAndOwnerId(any(), eq(user.id()))).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> asyncTransferService.getStatus(UUID.randomUUID()))
+        .isInstanceOf(TransferNotFoundException.class);
+  }
+
+  private TransferRecord pending() {
+    return TransferRecord.builder()
+        .id(UUID.randomUUID())
+        .ownerId(user.id())
+        .fromCardId(request.fromCardId())
+        .toCardId(request.toCardId())
+        .amount(request.sum())
+        .status(TransferStatus.PENDING)
+        .createdDate(LocalDateTime.now())
+        .build();
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runCallbacks() {
+    doAnswer(
+            inv -> {
+              ((Consumer<TransactionStatus>) inv.getArgument(0)).accept(status);
+              return null;
+            })
+        .when(transactionTemplate)
+        .executeWithoutResult(any());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void runTransactions() {
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(status));
+  }
+}
@@ -0,0 +1,163 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.AuthTokensResponse;
+import me.cetjs2.bankcards.entity.RefreshToken;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.exception.InvalidRefreshTokenException;
+import me.cetjs2.bankcards.repository.RefreshTokenRepository;
+import me.cetjs2.bankcards.repository.RevokedTokenRepository;
+import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.security.TokenVersionChangedEvent;
+import me.cetjs2.bankcards.security.TokensRevokedEvent;
+import me.cetjs2.bankcards.security.UserCredentials;
+import me.cetjs2.bankcards.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+
+class AuthTokenServiceTest {
+
+  private RefreshTokenRepository refreshTokenRepository;
+  private UserRepository userRepository;
+  private ApplicationEventPublisher eventPublisher;
+  private AuthTokenService authTokenService;
+
+  private final User user =
+      User.builder().id(UUID.randomUUID()).userName("ivan_gold").role(Role.USER).build();
+
+  @BeforeEach
+  void setUp() {
+    refreshTokenRepository = mock(RefreshTokenRepository.class);
+    userRepository = mock(UserRepository.class);
+    eventPublisher = mock(ApplicationEventPublisher.class);
+    JwtUtil jwtUtil = mock(JwtUtil.class);
+    when(jwtUtil.generateToken(any(), any(), any())).thenReturn("access");
+    authTokenService =
+        new AuthTokenService(
+            refreshTokenRepository,
+            mock(RevokedTokenRepository.class),
+            userRepository,
+            jwtUtil,
+            eventPublisher,
+            Duration.ofMinutes(15),
+            Duration.ofDays(30));
+  }
+
+  @Test
+  @DisplayName("Логин: в БД сохраняется только хэш refresh-токена")
+  void issue_StoresHashOnly() {
+    AuthTokensResponse tokens = authTokenService.issue(UserCredentials.from(user));
+
+    ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+    verify(refreshTokenRepository).save(saved.capture());
+    assertThat(tokens.token()).isEqualTo("access");
+    assertThat(tokens.expiresIn()).isEqualTo(900);
+    assertThat(saved.getValue().getTokenHash()).hasSize(64).isNotEqualTo(tokens.refreshToken());
+    assertThat(saved.getValue().getUserId()).isEqualTo(user.getId());
+  }
+
+  @Test
+  @DisplayName("Обмен: старый токен гасится, новый выпускается в той же цепочке")
+  void refresh_Rotates() {
+    RefreshToken current = stored(0, LocalDateTime.now().plusDays(1));
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+    when(refreshTokenRepository.revoke(eq(current.getId()), any())).thenReturn(1);
+    when(userRepository.findById(user.getId())).thenReturn(Optional.of(user));
+
+    authTokenService.refresh("refresh-1");
+
+    verify(refreshTokenRepository)
+        .save(argThat(t -> t.getFamilyId().equals(current.getFamilyId())));
+    verify(refreshTokenRepository, never()).revokeFamily(any());
+  }
+
+  @Test
+  @DisplayName("Повторное предъявление обмененного токена отзывает всю цепочку")
+  void refresh_ReuseRevokesFamily() {
+    RefreshToken current = stored(0, LocalDateTime.now().plusDays(1));
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+    when(refreshTokenRepository.revoke(eq(current.getId()), any())).thenReturn(0);
+    when(refreshTokenRepository.revokeFamily(current.getFamilyId())).thenReturn(2);
+
+    assertThatThrownBy(() -> authTokenService.refresh("refresh-1"))
+        .isInstanceOf(InvalidRefreshTokenException.class)
+        .hasMessageContaining("reuse");
+    verify(eventPublisher).publishEvent(any(TokensRevokedEvent.class));
+    verify(refreshTokenRepository, never()).save(any());
+  }
+
+  @Test
+  @DisplayName("После смены пароля или роли цепочка не продлевается")
+  void refresh_TokenVersionRaised() {
+    RefreshToken current = stored(0, LocalDateTime.now().plusDays(1));
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+    when(refreshTokenRepository.revoke(eq(current.getId()), any())).thenReturn(1);
+    when(userRepository.findById(user.getId()))
+        .thenReturn(Optional.of(User.builder().id(user.getId()).tokenVersion(1).build()));
+
+    assertThatThrownBy(() -> authTokenService.refresh("refresh-1"))
+        .isInstanceOf(InvalidRefreshTokenException.class);
+    verify(refreshTokenRepository).revokeFamily(current.getFamilyId());
+  }
+
+  @Test
+  @DisplayName("Истекший refresh-токен отклоняется")
+  void refresh_Expired() {
+    RefreshToken current = stored(0, LocalDateTime.now().minusMinutes(1));
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+
+    assertThatThrownBy(() -> authTokenService.refresh("refresh-1"))
+        .isInstanceOf(InvalidRefreshTokenException.class)
+        .hasMessageContaining("expired");
+    verify(refreshTokenRepository, never()).revoke(any(), any());
+  }
+
+  @Test
+  @DisplayName("Выход на всех устройствах поднимает версию токенов владельца refresh-токена")
+  void logoutAll_BumpsTokenVersion() {
+    RefreshToken current = stored(0, LocalDateTime.now().plusDays(1));
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.of(current));
+    when(userRepository.bumpTokenVersion(user.getId())).thenReturn(1);
+
+    authTokenService.logoutAll("refresh-1");
+
+    verify(userRepository).bumpTokenVersion(user.getId());
+    verify(userRepository, never()).save(any());
+    verify(eventPublisher).publishEvent(any(TokenVersionChangedEvent.class));
+  }
+
+  @Test
+  @DisplayName("Выход на всех устройствах с неизвестным токеном ничего не меняет")
+  void logoutAll_UnknownToken() {
+    when(refreshTokenRepository.findByTokenHash(anyString())).thenReturn(Optional.empty());
+
+    authTokenService.logoutAll("unknown");
+
+    verify(userRepository, never()).bumpTokenVersion(any());
+    verifyNoInteractions(eventPublisher);
+  }
+
+  private RefreshToken stored(int tokenVersion, LocalDateTime expiresDate) {
+    return RefreshToken.builder()
+        .id(UUID.randomUUID())
+        .userId(user.getId())
+        .familyId(UUID.randomUUID())
+        .tokenHash("hash")
+        .tokenVersion(tokenVersion)
+        .expiresDate(expiresDate)
+        .build();
+  }
+}
@@ -5,6 +5,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
+import java.time.YearMonth;
 import java.util.Optional;
 import java.util.UUID;
 import me.cetjs2.bankcards.dto.SucessActionResponse;
@@ -17,6 +18,7 @@ import me.cetjs2.bankcards.exception.CardNotFoundException;
 import me.cetjs2.bankcards.exception.CardPermissionDeniedException;
 import me.cetjs2.bankcards.repository.BlockRequestRepository;
 import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -41,7 +43,7 @@ public class BlockRequestServiceTest {
   @BeforeEach
   void setUp() {
     cardId = UUID.randomUUID();
-    testUser = User.builder().userName("owner_user").role(Role.USER).build();
+    testUser = User.builder().id(UUID.randomUUID()).userName("owner_user").role(Role.USER).build();
     testCard = Card.builder().id(cardId).owner(testUser).cardStatus(CardStatus.ACTIVE).build();
   }
 
@@ -50,7 +52,7 @@ public class BlockRequestServiceTest {
   void sendBlockRequest_Success() {
     // GIVEN
     when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
-    when(userService.getCurrentUser()).thenReturn(testUser);
+    when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
     when(blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
         .thenReturn(false);
 
@@ -77,10 +79,12 @@ public class BlockRequestServiceTest {
   @Test
   @DisplayName("Ошибка: Попытка заблокировать чужую карту")
   void sendBlockRequest_PermissionDenied_WrongOwner() {
-    User stranger = User.builder().userName("stranger").build();
+    User stranger =
+        User.builder().id(UUID.randomUUID()).userName("stranger").role(Role.USER).build();
 
     when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
-    when(userService.getCurrentUser()).thenReturn(stranger); // Текущий юзер не владелец
+    when(userService.getCurrentUser())
+        .thenReturn(AuthenticatedUser.from(stranger)); // Текущий юзер не владелец
 
     assertThatThrownBy(() -> blockRequestService.sendBlockRequest(cardId))
         .isInstanceOf(CardPermissionDeniedException.class);
@@ -92,7 +96,7 @@ public class BlockRequestServiceTest {
   @DisplayName("Инфо: Запрос уже существует в БД")
   void sendBlockRequest_AlreadyExists() {
     when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
-    when(userService.getCurrentUser()).thenReturn(testUser);
+    when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
     when(blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
         .thenReturn(true);
 
@@ -108,7 +112,7 @@ public class BlockRequestServiceTest {
     testCard = testCard.toBuilder().cardStatus(CardStatus.BLOCKED).build();
 
     when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
-    when(userService.getCurrentUser()).thenReturn(testUser);
+    when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
     when(blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
         .thenReturn(false);
 
@@ -116,4 +120,20 @@ public class BlockRequestServiceTest {
         .isInstanceOf(CardPermissionDeniedException.class)
         .hasMessageContaining("уже заблокирована");
   }
+
+  @Test
+  @DisplayName("Ошибка: срок карты истек, статус в БД еще ACTIVE")
+  void sendBlockRequest_ExpiredByDate() {
+    testCard = testCard.toBuilder().expirationDate(YearMonth.now().minusMonths(1)).build();
+
+    when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
+    when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
+    when(blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
+        .thenReturn(false);
+
+    assertThatThrownBy(() -> blockRequestService.sendBlockRequest(cardId))
+        .isInstanceOf(CardPermissionDeniedException.class)
+        .hasMessageContaining("просрочена");
+    verify(blockRequestRepository, never()).save(any());
+  }
 }
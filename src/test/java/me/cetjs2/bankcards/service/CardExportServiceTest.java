@@ -0,0 +1,116 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardExportFormat;
+import me.cetjs2.bankcards.dto.CardViewResponse;
+import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import tools.jackson.databind.json.JsonMapper;
+
+class CardExportServiceTest {
+
+  private static final UUID START = new UUID(0L, 0L);
+
+  private CardRepository cardRepository;
+  private CardExportService exportService;
+
+  private final CardViewResponse first =
+      new CardViewResponse(
+          UUID.fromString("00000000-0000-0000-0000-000000000001"),
+          "**** **** **** 1111",
+          "ivan_gold",
+          CardStatus.ACTIVE,
+          YearMonth.of(2030, 1),
+          new BigDecimal("15.00"));
+  private final CardViewResponse second =
+      new CardViewResponse(
+          UUID.fromString("00000000-0000-0000-0000-000000000002"),
+          "**** **** **** 2222",
+          "petrov, \"младший\"",
+          CardStatus.BLOCKED,
+          YearMonth.of(2028, 12),
+          new BigDecimal("0.50"));
+
+  @BeforeEach
+  void setUp() {
+    cardRepository = mock(CardRepository.class);
+    exportService = new CardExportService(cardRepository, JsonMapper.builder().build(), 2);
+  }
+
+  @Test
+  @DisplayName("NDJSON: одна карта - одна строка JSON, одна порция без продолжения - один запрос")
+  void export_Ndjson() throws Exception {
+    Pageable limit = PageRequest.of(0, 2);
+    when(cardRepository.findViewsAfterId(START, limit))
+        .thenReturn(new SliceImpl<>(List.of(first, second), limit, false));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exportService.export(null, CardExportFormat.NDJSON, out);
+
+    String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+    assertThat(lines).hasSize(2);
+    assertThat(lines[0])
+        .contains("\"id\":\"00000000-0000-0000-0000-000000000001\"")
+        .contains("\"expirationDate\":\"01/30\"")
+        .contains("\"balance\":15.00");
+    verify(cardRepository, times(1)).findViewsAfterId(any(), any());
+  }
+
+  @Test
+  @DisplayName("CSV: заголовок, фильтр по владельцу, логин с запятой и кавычками экранируется")
+  void export_CsvByOwner() throws Exception {
+    Pageable limit = PageRequest.of(0, 2);
+    when(cardRepository.findOwnerViewsAfterId("ivan_gold", START, limit))
+        .thenReturn(new SliceImpl<>(List.of(first, second), limit, false));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    exportService.export("ivan_gold", CardExportFormat.CSV, out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8))
+        .isEqualTo(
+            "id,cardNumber,ownerName,cardStatus,expirationDate,balance\n"
+                + "00000000-0000-0000-0000-000000000001,**** **** **** 1111,ivan_gold,ACTIVE,01/30,15.00\n"
+                + "00000000-0000-0000-0000-000000000002,**** **** **** 2222,"
+                + "\"petrov, \"\"младший\"\"\",BLOCKED,12/28,0.50\n");
+    verify(cardRepository, never()).findViewsAfterId(any(), any());
+  }
+
+  @Test
+  @DisplayName("Порции: следующая читается после последнего id, предыдущая уже отдана клиенту")
+  void export_ChunksByKeyset() throws Exception {
+    exportService = new CardExportService(cardRepository, JsonMapper.builder().build(), 1);
+    Pageable limit = PageRequest.of(0, 1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    when(cardRepository.findViewsAfterId(START, limit))
+        .thenReturn(new SliceImpl<>(List.of(first), limit, true));
+    when(cardRepository.findViewsAfterId(first.id(), limit))
+        .thenAnswer(
+            invocation -> {
+              // К запросу второй порции первая уже записана в ответ
+              assertThat(out.toString(StandardCharsets.UTF_8)).contains(first.id().toString());
+              return new SliceImpl<>(List.of(second), limit, false);
+            });
+
+    exportService.export("", CardExportFormat.NDJSON, out);
+
+    assertThat(out.toString(StandardCharsets.UTF_8).split("\n")).hasSize(2);
+    verify(cardRepository).findViewsAfterId(eq(first.id()), any());
+    verify(cardRepository, never()).findViewsAfterId(eq(second.id()), any());
+  }
+}
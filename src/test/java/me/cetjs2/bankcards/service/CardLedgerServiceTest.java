@@ -0,0 +1,178 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Card;
+import me.cetjs2.bankcards.entity.LedgerEntryType;
+import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.repository.CardBalanceStripeRepository;
+import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository.PendingEntry;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository.PendingTotal;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CardLedgerServiceTest {
+
+  @Mock private LedgerEntryRepository ledgerEntryRepository;
+  @Mock private CardBalanceStripeRepository cardBalanceStripeRepository;
+  @Mock private CardRepository cardRepository;
+
+  @InjectMocks private CardLedgerService cardLedgerService;
+
+  @Test
+  @DisplayName("Текущий остаток читается одним запросом (снимок + хвост)")
+  void getCurrentBalance() {
+    UUID cardId = UUID.randomUUID();
+    when(cardRepository.findCurrentBalance(cardId)).thenReturn(Optional.of(new BigDecimal("42")));
+
+    assertThat(cardLedgerService.getCurrentBalance(cardId)).isEqualByComparingTo("42");
+  }
+
+  @Test
+  @DisplayName("Остаток несуществующей карты - ошибка 404")
+  void getCurrentBalance_NotFound() {
+    when(cardRepository.findCurrentBalance(any())).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> cardLedgerService.getCurrentBalance(UUID.randomUUID()))
+        .isInstanceOf(CardNotFoundException.class);
+  }
+
+  @Test
+  @DisplayName("Хвост журнала и полосы добавляются к снимку только своей карты")
+  void currentBalance_AddsPendingTail() {
+    UUID withTail = UUID.randomUUID();
+    UUID withoutTail = UUID.randomUUID();
+    PendingTotal ledgerTail = total(withTail, "2.50");
+    PendingTotal stripes = total(withTail, "3.00");
+    when(ledgerEntryRepository.sumPendingByCardIds(List.of(withTail, withoutTail)))
+        .thenReturn(List.of(ledgerTail));
+    when(cardBalanceStripeRepository.sumByCardIds(List.of(withTail, withoutTail)))
+        .thenReturn(List.of(stripes));
+
+    Map<UUID, BigDecimal> pending =
+        cardLedgerService.getPendingTotals(List.of(withTail, withoutTail));
+
+    Card first = Card.builder().id(withTail).balance(BigDecimal.TEN).build();
+    Card second = Card.builder().id(withoutTail).balance(BigDecimal.TEN).build();
+    assertThat(cardLedgerService.currentBalance(first, pending)).isEqualByComparingTo("15.50");
+    assertThat(cardLedgerService.currentBalance(second, pending)).isEqualByComparingTo("10");
+  }
+
+  @Test
+  @DisplayName("Начальный остаток новой карты пишется учтенной записью зачисления")
+  void recordOpeningBalance() {
+    Card card = Card.builder().id(UUID.randomUUID()).balance(new BigDecimal("100")).build();
+
+    cardLedgerService.recordOpeningBalance(card);
+
+    verify(ledgerEntryRepository)
+        .save(
+            argThat(
+                e ->
+                    e.getCard() == card
+                        && e.isFolded()
+                        && e.getEntryType() == LedgerEntryType.CREDIT
+                        && e.getAmount().compareTo(new BigDecimal("100")) == 0));
+  }
+
+  @Test
+  @DisplayName("Перед повторным списанием сворачиваются и журнал, и полосы")
+  void foldIntoSnapshot_FoldsLedgerAndStripes() {
+    UUID cardId = UUID.randomUUID();
+    when(ledgerEntryRepository.foldPending(cardId)).thenReturn(0);
+    when(cardBalanceStripeRepository.sweep(cardId)).thenReturn(1);
+
+    assertThat(cardLedgerService.foldIntoSnapshot(cardId)).isTrue();
+
+    var inOrder = inOrder(ledgerEntryRepository, cardBalanceStripeRepository);
+    inOrder.verify(ledgerEntryRepository).foldPending(cardId);
+    inOrder.verify(cardBalanceStripeRepository).sweep(cardId);
+  }
+
+  @Test
+  @DisplayName("Смена числа полос: блокировка карты, сметание старых полос, новые полосы")
+  void restripe() {
+    UUID cardId = UUID.randomUUID();
+    when(cardRepository.findByIdForUpdate(cardId))
+        .thenReturn(Optional.of(Card.builder().id(cardId).build()));
+
+    cardLedgerService.restripe(cardId, 8);
+
+    var inOrder = inOrder(cardRepository, cardBalanceStripeRepository);
+    inOrder.verify(cardRepository).findByIdForUpdate(cardId);
+    inOrder.verify(cardBalanceStripeRepository).sweep(cardId);
+    inOrder.verify(cardBalanceStripeRepository).deleteByCardId(cardId);
+    inOrder.verify(cardBalanceStripeRepository).createStripes(cardId, 8);
+    inOrder.verify(cardRepository).updateStripeCount(cardId, 8);
+  }
+
+  @Test
+  @DisplayName("Выключение полос не создает новых строк")
+  void restripe_Disable() {
+    UUID cardId = UUID.randomUUID();
+    when(cardRepository.findByIdForUpdate(cardId))
+        .thenReturn(Optional.of(Card.builder().id(cardId).build()));
+
+    cardLedgerService.restripe(cardId, 0);
+
+    verify(cardBalanceStripeRepository).sweep(cardId);
+    verify(cardBalanceStripeRepository, never()).createStripes(any(), anyInt());
+    verify(cardRepository).updateStripeCount(cardId, 0);
+  }
+
+  @Test
+  @DisplayName("Фоновая свертка: карты блокируются в порядке id, записи занятых карт пропускаются")
+  void foldPendingEntries_SkipsBusyCards() {
+    UUID free = UUID.randomUUID();
+    UUID busy = UUID.randomUUID();
+    PendingEntry first = entry(free);
+    PendingEntry second = entry(busy);
+    PendingEntry third = entry(free);
+    when(ledgerEntryRepository.lockOldestPending(100)).thenReturn(List.of(first, second, third));
+    when(cardRepository.lockIdsForFold(Set.of(free, busy))).thenReturn(List.of(free));
+    when(ledgerEntryRepository.foldEntries(List.of(first.getId(), third.getId()))).thenReturn(1);
+
+    assertThat(cardLedgerService.foldPendingEntries(100)).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Фоновая свертка: все карты порции заняты - ничего не сворачивается")
+  void foldPendingEntries_AllCardsBusy() {
+    UUID busy = UUID.randomUUID();
+    PendingEntry pending = entry(busy);
+    when(ledgerEntryRepository.lockOldestPending(100)).thenReturn(List.of(pending));
+    when(cardRepository.lockIdsForFold(Set.of(busy))).thenReturn(List.of());
+
+    assertThat(cardLedgerService.foldPendingEntries(100)).isZero();
+    verify(ledgerEntryRepository, never()).foldEntries(any());
+  }
+
+  private static PendingEntry entry(UUID cardId) {
+    PendingEntry entry = mock(PendingEntry.class);
+    lenient().when(entry.getId()).thenReturn(UUID.randomUUID());
+    when(entry.getCardId()).thenReturn(cardId);
+    return entry;
+  }
+
+  private static PendingTotal total(UUID cardId, String amount) {
+    PendingTotal total = mock(PendingTotal.class);
+    when(total.getCardId()).thenReturn(cardId);
+    when(total.getTotal()).thenReturn(new BigDecimal(amount));
+    return total;
+  }
+}
@@ -13,18 +13,26 @@ import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardListOrder;
+import me.cetjs2.bankcards.dto.CardListResponse;
 import me.cetjs2.bankcards.dto.CardViewResponse;
 import me.cetjs2.bankcards.dto.CreateCardRequest;
+import me.cetjs2.bankcards.dto.ETagged;
 import me.cetjs2.bankcards.dto.SucessActionResponse;
 import me.cetjs2.bankcards.entity.BlockRequest;
 import me.cetjs2.bankcards.entity.Card;
 import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.Role;
 import me.cetjs2.bankcards.entity.User;
+import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.exception.InvalidCursorException;
 import me.cetjs2.bankcards.exception.UsernameNotFoundException;
 import me.cetjs2.bankcards.repository.BlockRequestRepository;
 import me.cetjs2.bankcards.repository.CardRepository;
 import me.cetjs2.bankcards.repository.UserRepository;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
 import me.cetjs2.bankcards.util.CardUtil;
+import me.cetjs2.bankcards.util.CursorCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -33,10 +41,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 @ExtendWith(MockitoExtension.class)
 class CardServiceTest {
@@ -45,7 +54,10 @@ class CardServiceTest {
   @Mock private UserRepository userRepository;
   @Mock private UserService userService;
   @Mock private BlockRequestRepository blockRequestRepository;
+  @Mock private CardLedgerService cardLedgerService;
   @Mock private CardUtil cardUtil;
+  @Mock private CardViewCache cardViewCache;
+  @Mock private ApplicationEventPublisher eventPublisher;
 
   @InjectMocks private CardService cardService;
 
@@ -55,7 +67,7 @@ class CardServiceTest {
 
   @BeforeEach
   void setUp() {
-    testUser = User.builder().userName("ivan_petrov").build();
+    testUser = User.builder().id(UUID.randomUUID()).userName("ivan_petrov").role(Role.USER).build();
     cardId = UUID.randomUUID();
     testCard =
         Card.builder()
@@ -88,6 +100,7 @@ class CardServiceTest {
       assertThat(response).isNotNull();
       assertThat(response.ownerName()).isEqualTo(testUser.getUsername());
       verify(cardRepository).save(any(Card.class));
+      verify(cardLedgerService).recordOpeningBalance(testCard);
     }
 
     @Test
@@ -109,13 +122,30 @@ class CardServiceTest {
     @Test
     @DisplayName("Получение информации по ID")
     void getCardInfo_Success() {
-      when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
-      when(cardUtil.maskCardNumber(anyString())).thenReturn("masked");
+      CardViewResponse view =
+          new CardViewResponse(
+              cardId,
+              "**** **** **** 1111",
+              "ivan_petrov",
+              CardStatus.ACTIVE,
+              YearMonth.now().plusYears(1),
+              new BigDecimal("15"));
+      when(cardViewCache.get(cardId)).thenReturn(new ETagged<>(view, "\"v1\""));
+
+      ETagged<CardViewResponse> response = cardService.getCardInfo(cardId);
+
+      // Представление берется из кэша, сущности карты и владельца не загружаются
+      assertThat(response.body()).isEqualTo(view);
+      verify(cardRepository, never()).findById(any());
+    }
 
-      CardViewResponse response = cardService.getCardInfo(cardId);
+    @Test
+    @DisplayName("Получение информации по несуществующему ID")
+    void getCardInfo_NotFound() {
+      when(cardViewCache.get(cardId)).thenThrow(new CardNotFoundException("Card not found"));
 
-      assertThat(response.id()).isEqualTo(cardId);
-      verify(cardRepository).findById(cardId);
+      assertThatThrownBy(() -> cardService.getCardInfo(cardId))
+          .isInstanceOf(CardNotFoundException.class);
     }
 
     @Test
@@ -127,6 +157,7 @@ class CardServiceTest {
 
       assertThat(response.message()).contains("успешно удалена");
       verify(cardRepository).deleteById(cardId);
+      verify(eventPublisher).publishEvent(new CardsChangedEvent(List.of(cardId)));
     }
   }
 
@@ -138,17 +169,20 @@ class CardServiceTest {
     void blockCard_WithRequestUpdate() {
       BlockRequest pendingRequest = BlockRequest.builder().id(UUID.randomUUID()).build();
 
-      when(cardRepository.findById(cardId)).thenReturn(Optional.of(testCard));
+      when(cardRepository.updateStatus(cardId, CardStatus.BLOCKED)).thenReturn(1);
       when(blockRequestRepository.existsByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
           .thenReturn(true);
       when(blockRequestRepository.findOneByCardIdAndApprovedByIsNullAndApprovedDateIsNull(cardId))
           .thenReturn(pendingRequest);
-      when(userService.getCurrentUser()).thenReturn(testUser);
+      when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
+      when(userRepository.getReferenceById(testUser.getId())).thenReturn(testUser);
 
       cardService.blockCard(cardId);
 
-      // Проверка смены статуса карты
-      verify(cardRepository).save(argThat(c -> c.getCardStatus() == CardStatus.BLOCKED));
+      // Статус меняется точечным UPDATE: строка карты целиком (остаток, полосы) не переписывается
+      verify(cardRepository).updateStatus(cardId, CardStatus.BLOCKED);
+      verify(cardRepository, never()).save(any(Card.class));
+      verify(eventPublisher).publishEvent(new CardsChangedEvent(List.of(cardId)));
       verify(blockRequestRepository)
           .save(
               argThat(
@@ -156,55 +190,89 @@ class CardServiceTest {
     }
 
     @Test
-    @DisplayName("Массовая блокировка: корректная обработка карт, просроченных до текущего месяца")
-    void blockExpiredCards_ShouldProcessOnlyCardsBeforeCurrentMonth() {
-      // 1. GIVEN (Дано)
-      // Фиксируем текущий месяц, который будет использовать сервис
+    @DisplayName("Блокировка несуществующей карты: CardNotFoundException, без сохранения")
+    void blockCard_NotFound() {
+      when(cardRepository.updateStatus(cardId, CardStatus.BLOCKED)).thenReturn(0);
+
+      assertThatThrownBy(() -> cardService.blockCard(cardId))
+          .isInstanceOf(CardNotFoundException.class);
+      verify(cardRepository, never()).save(any(Card.class));
+      verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Истечение порцией: кандидаты до текущего месяца меняют статус одним UPDATE")
+    void expireCardsChunk_FullChunk_ReturnsNextPosition() {
+      YearMonth today = YearMonth.now();
+      UUID firstId = UUID.randomUUID();
+      UUID lastId = UUID.randomUUID();
+      var first = expiryCandidate(firstId, today.minusYears(1));
+      var last = expiryCandidate(lastId, today.minusMonths(1));
+
+      when(cardRepository.findExpiryCandidates(
+              eq(CardStatus.ACTIVE),
+              eq(today),
+              eq(YearMonth.of(1900, 1).atDay(1)),
+              eq(new UUID(0L, 0L)),
+              eq(PageRequest.of(0, 2))))
+          .thenReturn(List.of(first, last));
+      when(cardRepository.updateStatus(
+              List.of(firstId, lastId), CardStatus.ACTIVE, CardStatus.EXPIRED))
+          .thenReturn(2);
+
+      CardExpiryChunk chunk = cardService.expireCardsChunk(today, null, 2);
+
+      // Порция полная: следующая начнется сразу после последней карты
+      assertThat(chunk.expired()).isEqualTo(2);
+      assertThat(chunk.next().expirationDate()).isEqualTo(today.minusMonths(1));
+      assertThat(chunk.next().id()).isEqualTo(lastId);
+      verify(eventPublisher).publishEvent(new CardsChangedEvent(List.of(firstId, lastId)));
+      verify(cardRepository, never()).save(any(Card.class));
+    }
+
+    @Test
+    @DisplayName("Истечение порцией: неполная порция - последняя, пустая - без UPDATE")
+    void expireCardsChunk_LastChunk_NoNextPosition() {
       YearMonth today = YearMonth.now();
+      UUID afterId = UUID.randomUUID();
+      UUID cardId = UUID.randomUUID();
+      var after =
+          new CursorCodec.CardPosition(CardListOrder.EXPIRATION_DATE, today.minusYears(2), afterId);
+
+      when(cardRepository.findExpiryCandidates(
+              eq(CardStatus.ACTIVE),
+              eq(today),
+              eq(today.minusYears(2).atDay(1)),
+              eq(afterId),
+              any(Pageable.class)))
+          .thenReturn(List.of(expiryCandidate(cardId, today.minusMonths(1))))
+          .thenReturn(List.of());
+      when(cardRepository.updateStatus(List.of(cardId), CardStatus.ACTIVE, CardStatus.EXPIRED))
+          .thenReturn(1);
+
+      CardExpiryChunk chunk = cardService.expireCardsChunk(today, after, 10);
+      assertThat(chunk.expired()).isEqualTo(1);
+      assertThat(chunk.next()).isNull();
+
+      CardExpiryChunk empty = cardService.expireCardsChunk(today, after, 10);
+      assertThat(empty.expired()).isZero();
+      assertThat(empty.next()).isNull();
+      verify(cardRepository, times(1)).updateStatus(any(), any(), any());
+      verify(eventPublisher, times(1)).publishEvent(any(CardsChangedEvent.class));
+    }
 
-      // Создаем карту, которая просрочена (например, на 1 месяц назад)
-      Card expiredCard1 =
-          Card.builder()
-              .id(UUID.randomUUID())
-              .cardNumber("4444 0000 1111 2222")
-              .expirationDate(today.minusMonths(1)) // Например: Декабрь 2025
-              .cardStatus(CardStatus.ACTIVE)
-              .build();
-
-      // Создаем вторую карту, которая просрочена (например, на год назад)
-      Card expiredCard2 =
-          Card.builder()
-              .id(UUID.randomUUID())
-              .cardNumber("4444 0000 3333 4444")
-              .expirationDate(today.minusYears(1)) // Например: Январь 2025
-              .cardStatus(CardStatus.ACTIVE)
-              .build();
-
-      // Настраиваем Mock: репозиторий должен вернуть эти карты при поиске по текущему месяцу
-      when(cardRepository.findAllByCardStatusAndExpirationDateBefore(
-              eq(CardStatus.ACTIVE), eq(today)))
-          .thenReturn(List.of(expiredCard1, expiredCard2));
-
-      // Имитируем сохранение: возвращаем тот же объект, что пришел на вход
-      when(cardRepository.save(any(Card.class)))
-          .thenAnswer(invocation -> invocation.getArgument(0));
-
-      // 2. WHEN (Когда)
-      cardService.blockExpiredCards();
-
-      // 3. THEN (Тогда)
-      // Проверяем, что findAll... вызвался ровно 1 раз с правильными параметрами
-      verify(cardRepository, times(1))
-          .findAllByCardStatusAndExpirationDateBefore(eq(CardStatus.ACTIVE), eq(today));
-
-      // Проверяем, что save() вызвался 2 раза (для каждой карты)
-      // и статус каждой карты был изменен на EXPIRED
-      verify(cardRepository, times(2))
-          .save(argThat(card -> card.getCardStatus() == CardStatus.EXPIRED));
-
-      // Дополнительная проверка: убеждаемся, что ID карт не изменились при сохранении
-      verify(cardRepository).save(argThat(c -> c.getId().equals(expiredCard1.getId())));
-      verify(cardRepository).save(argThat(c -> c.getId().equals(expiredCard2.getId())));
+    private CardRepository.ExpiryCandidate expiryCandidate(UUID id, YearMonth expirationDate) {
+      return new CardRepository.ExpiryCandidate() {
+        @Override
+        public UUID getId() {
+          return id;
+        }
+
+        @Override
+        public YearMonth getExpirationDate() {
+          return expirationDate;
+        }
+      };
     }
   }
 
@@ -217,31 +285,90 @@ class CardServiceTest {
     @Test
     @DisplayName("Админ запрашивает все карты (targetUsername пуст)")
     void admin_GetAll() {
-      when(cardRepository.findAll(pageable)).thenReturn(new PageImpl<>(List.of(testCard)));
+      when(cardRepository.findAllViews(pageable)).thenReturn(Page.empty());
 
       cardService.getAllAvailableCards("admin", "", true, pageable);
 
-      verify(cardRepository).findAll(pageable);
+      verify(cardRepository).findAllViews(pageable);
     }
 
     @Test
     @DisplayName("Админ фильтрует по конкретному пользователю")
     void admin_GetByTarget() {
-      when(cardRepository.findByOwnerUserName("user_a", pageable)).thenReturn(Page.empty());
+      when(cardRepository.findViewsByOwnerUserName("user_a", pageable)).thenReturn(Page.empty());
 
       cardService.getAllAvailableCards("admin", "user_a", true, pageable);
 
-      verify(cardRepository).findByOwnerUserName("user_a", pageable);
+      verify(cardRepository).findViewsByOwnerUserName("user_a", pageable);
     }
 
     @Test
     @DisplayName("Обычный пользователь видит только свои, даже если просит чужие")
     void user_SeeOnlyOwn() {
-      when(cardRepository.findByOwnerUserName("my_login", pageable)).thenReturn(Page.empty());
+      when(cardRepository.findViewsByOwnerUserName("my_login", pageable)).thenReturn(Page.empty());
 
       cardService.getAllAvailableCards("my_login", "other_user", false, pageable);
-      verify(cardRepository).findByOwnerUserName("my_login", pageable);
-      verify(cardRepository, never()).findByOwnerUserName(eq("other_user"), any());
+      verify(cardRepository).findViewsByOwnerUserName("my_login", pageable);
+      verify(cardRepository, never()).findViewsByOwnerUserName(eq("other_user"), any());
+    }
+  }
+
+  @Nested
+  @DisplayName("Список карт в режиме курсора")
+  class CursorListCardsTests {
+
+    @Test
+    @DisplayName("Первая страница: полная выборка дает курсор на последнюю карту")
+    void firstPage_ReturnsNextCursor() {
+      var first = view(UUID.randomUUID(), YearMonth.of(2030, 1));
+      var second = view(UUID.randomUUID(), YearMonth.of(2030, 2));
+      when(cardRepository.findOwnerViewsAfterExpiration(
+              eq("my_login"), any(), eq(new UUID(0L, 0L)), eq(PageRequest.of(0, 2))))
+          .thenReturn(new SliceImpl<>(List.of(first, second), PageRequest.of(0, 2), true));
+
+      CardListResponse response =
+          cardService.getCardsByCursor(
+              "my_login", "other_user", false, CardListOrder.EXPIRATION_DATE, null, 2);
+
+      assertThat(response.items()).containsExactly(first, second);
+      CursorCodec.CardPosition next = CursorCodec.decodeCard(response.nextCursor());
+      assertThat(next.order()).isEqualTo(CardListOrder.EXPIRATION_DATE);
+      assertThat(next.expirationDate()).isEqualTo(YearMonth.of(2030, 2));
+      assertThat(next.id()).isEqualTo(second.id());
+    }
+
+    @Test
+    @DisplayName("Следующая страница начинается после позиции из курсора, последняя - без курсора")
+    void nextPage_ContinuesAfterCursor() {
+      UUID lastId = UUID.randomUUID();
+      String cursor = CursorCodec.encode(CardListOrder.ID, YearMonth.of(2030, 1), lastId);
+      when(cardRepository.findViewsAfterId(lastId, PageRequest.of(0, 20)))
+          .thenReturn(new SliceImpl<>(List.of(), PageRequest.of(0, 20), false));
+
+      CardListResponse response =
+          cardService.getCardsByCursor("admin", "", true, CardListOrder.ID, cursor, 20);
+
+      assertThat(response.nextCursor()).isNull();
+      verify(cardRepository, never()).findAllViews(any());
+    }
+
+    @Test
+    @DisplayName("Курсор, выданный для другого порядка, отклоняется")
+    void cursorOfOtherOrder_Rejected() {
+      String cursor =
+          CursorCodec.encode(CardListOrder.ID, YearMonth.of(2030, 1), UUID.randomUUID());
+
+      assertThatThrownBy(
+              () ->
+                  cardService.getCardsByCursor(
+                      "admin", null, true, CardListOrder.EXPIRATION_DATE, cursor, 20))
+          .isInstanceOf(InvalidCursorException.class);
+      verifyNoInteractions(cardRepository);
+    }
+
+    private CardViewResponse view(UUID id, YearMonth expirationDate) {
+      return new CardViewResponse(
+          id, "**** **** **** 1111", "my_login", CardStatus.ACTIVE, expirationDate, BigDecimal.TEN);
     }
   }
 }
@@ -0,0 +1,171 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.dto.CardViewResponse;
+import me.cetjs2.bankcards.dto.ETagged;
+import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.exception.CardNotFoundException;
+import me.cetjs2.bankcards.repository.CardRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class CardViewCacheTest {
+
+  private CardRepository cardRepository;
+  private SimpleMeterRegistry meterRegistry;
+  private CardViewCache cache;
+  private final ExecutorService clients = Executors.newFixedThreadPool(4);
+
+  private final UUID cardId = UUID.randomUUID();
+  private final CardViewResponse view =
+      new CardViewResponse(
+          cardId,
+          "**** **** **** 1111",
+          "ivan_gold",
+          CardStatus.ACTIVE,
+          YearMonth.of(2030, 1),
+          new BigDecimal("15.00"));
+
+  @BeforeEach
+  void setUp() {
+    cardRepository = mock(CardRepository.class);
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new CardViewCache(cardRepository, meterRegistry, 100, Duration.ofMinutes(1));
+  }
+
+  @AfterEach
+  void tearDown() {
+    clients.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Повторный просмотр карты берется из кэша, без запроса к БД")
+  void get_Cached() {
+    when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(view));
+
+    assertThat(cache.get(cardId).body()).isEqualTo(view);
+    assertThat(cache.get(cardId).body()).isEqualTo(view);
+
+    verify(cardRepository, times(1)).findViewById(cardId);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("Карта с истекшим сроком показывается EXPIRED до смены статуса в БД")
+  void get_ExpiredByDate() {
+    // Строка еще ACTIVE: ночная задача ее не обработала
+    CardViewResponse stale =
+        new CardViewResponse(
+            cardId,
+            "**** **** **** 1111",
+            "ivan_gold",
+            CardStatus.ACTIVE,
+            YearMonth.now().minusMonths(1),
+            new BigDecimal("15.00"));
+    when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(stale));
+
+    assertThat(cache.get(cardId).body().cardStatus()).isEqualTo(CardStatus.EXPIRED);
+    // Срок до конца текущего месяца - карта еще действует
+    assertThat(
+            new CardViewResponse(
+                    cardId, "", "", CardStatus.ACTIVE, YearMonth.now(), BigDecimal.ZERO)
+                .cardStatus())
+        .isEqualTo(CardStatus.ACTIVE);
+  }
+
+  @Test
+  @DisplayName("Изменение карты сбрасывает ее представление: следующий просмотр читает БД")
+  void onCardsChanged_Evicts() {
+    when(cardRepository.findViewById(cardId)).thenReturn(Optional.of(view));
+    cache.get(cardId);
+
+    cache.onCardsChanged(new CardsChangedEvent(List.of(cardId, UUID.randomUUID())));
+    cache.get(cardId);
+
+    verify(cardRepository, times(2)).findViewById(cardId);
+  }
+
+  @Test
+  @DisplayName("ETag меняется вместе с содержимым карты и совпадает для одинаковых данных")
+  void get_ETagFollowsContent() {
+    CardViewResponse blocked =
+        new CardViewResponse(
+            cardId,
+            view.cardNumber(),
+            view.ownerName(),
+            CardStatus.BLOCKED,
+            view.expirationDate(),
+            view.balance());
+    when(cardRepository.findViewById(cardId))
+        .thenReturn(Optional.of(view))
+        .thenReturn(Optional.of(blocked))
+        .thenReturn(Optional.of(view));
+
+    String first = cache.get(cardId).etag();
+    cache.onCardsChanged(new CardsChangedEvent(List.of(cardId)));
+    String afterBlock = cache.get(cardId).etag();
+    cache.onCardsChanged(new CardsChangedEvent(List.of(cardId)));
+
+    assertThat(first).startsWith("\"").endsWith("\"");
+    assertThat(afterBlock).isNotEqualTo(first);
+    assertThat(cache.get(cardId).etag()).isEqualTo(first);
+  }
+
+  @Test
+  @DisplayName("Несуществующая карта - исключение, в кэш не попадает")
+  void get_NotFound() {
+    when(cardRepository.findViewById(cardId)).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> cache.get(cardId)).isInstanceOf(CardNotFoundException.class);
+    assertThatThrownBy(() -> cache.get(cardId)).isInstanceOf(CardNotFoundException.class);
+    verify(cardRepository, times(2)).findViewById(cardId);
+  }
+
+  @Test
+  @DisplayName("Одновременные промахи по одной карте ждут одну загрузку")
+  void get_ConcurrentMissesLoadOnce() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(cardRepository.findViewById(cardId))
+        .thenAnswer(
+            inv -> {
+              loading.countDown();
+              release.await(5, TimeUnit.SECONDS);
+              return Optional.of(view);
+            });
+
+    Future<ETagged<CardViewResponse>> first = clients.submit(() -> cache.get(cardId));
+    assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+    Future<ETagged<CardViewResponse>> second = clients.submit(() -> cache.get(cardId));
+    Future<ETagged<CardViewResponse>> third = clients.submit(() -> cache.get(cardId));
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS).body()).isEqualTo(view);
+    assertThat(second.get(5, TimeUnit.SECONDS).body()).isEqualTo(view);
+    assertThat(third.get(5, TimeUnit.SECONDS).body()).isEqualTo(view);
+    verify(cardRepository, times(1)).findViewById(cardId);
+    assertThat(meterRegistry.get("cache.load").tag("result", "success").functionCounter().count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("cache.load.duration").gauge().value()).isPositive();
+  }
+}
@@ -0,0 +1,157 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.exception.IdempotencyKeyConflictException;
+import me.cetjs2.bankcards.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+class IdempotencyServiceTest {
+
+  private IdempotencyRecordRepository repository;
+  private IdempotencyService idempotencyService;
+  private final UUID userId = UUID.randomUUID();
+
+  @BeforeEach
+  void setUp() {
+    repository = mock(IdempotencyRecordRepository.class);
+    idempotencyService =
+        new IdempotencyService(
+            repository, 100, Duration.ofMinutes(1), Duration.ofHours(1), Duration.ofSeconds(5));
+    when(repository.findByUserIdAndIdempotencyKey(any(), any())).thenReturn(Optional.empty());
+  }
+
+  @Test
+  @DisplayName("Повтор с тем же ключом отвечает из кэша без выполнения перевода")
+  void execute_ReplayFromCache() {
+    AtomicInteger calls = new AtomicInteger();
+
+    idempotencyService.execute(
+        userId, "k", "fp", () -> new SucessActionResponse("ok " + calls.incrementAndGet()));
+    SucessActionResponse replay =
+        idempotencyService.execute(
+            userId, "k", "fp", () -> new SucessActionResponse("ok " + calls.incrementAndGet()));
+
+    assertThat(replay.message()).isEqualTo("ok 1");
+    assertThat(calls).hasValue(1);
+    verify(repository, times(1)).findByUserIdAndIdempotencyKey(userId, "k");
+  }
+
+  @Test
+  @DisplayName("Результат, сохраненный в БД, возвращается без выполнения перевода")
+  void execute_ReplayFromDatabase() {
+    when(repository.findByUserIdAndIdempotencyKey(userId, "k"))
+        .thenReturn(
+            Optional.of(
+                IdempotencyRecord.builder()
+                    .requestFingerprint("fp")
+                    .responseMessage("stored")
+                    .build()));
+
+    SucessActionResponse response =
+        idempotencyService.execute(
+            userId,
+            "k",
+            "fp",
+            () -> {
+              throw new AssertionError("перевод не должен выполняться");
+            });
+
+    assertThat(response.message()).isEqualTo("stored");
+  }
+
+  @Test
+  @DisplayName("Тот же ключ с другим телом запроса отклоняется")
+  void execute_FingerprintMismatch() {
+    idempotencyService.execute(userId, "k", "fp-1", () -> new SucessActionResponse("ok"));
+
+    assertThatThrownBy(
+            () ->
+                idempotencyService.execute(
+                    userId, "k", "fp-2", () -> new SucessActionResponse("ok")))
+        .isInstanceOf(IdempotencyKeyConflictException.class);
+  }
+
+  @Test
+  @DisplayName("Параллельный дубликат ждет оригинал и получает его ответ")
+  void execute_ConcurrentDuplicateWaits() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger calls = new AtomicInteger();
+
+    CompletableFuture<SucessActionResponse> original =
+        CompletableFuture.supplyAsync(
+            () ->
+                idempotencyService.execute(
+                    userId,
+                    "k",
+                    "fp",
+                    () -> {
+                      calls.incrementAndGet();
+                      started.countDown();
+                      try {
+                        release.await(5, TimeUnit.SECONDS);
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                      return new SucessActionResponse("original");
+                    }));
+    assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+    CompletableFuture<SucessActionResponse> duplicate =
+        CompletableFuture.supplyAsync(
+            () ->
+                idempotencyService.execute(
+                    userId,
+                    "k",
+                    "fp",
+                    () -> {
+                      calls.incrementAndGet();
+                      return new SucessActionResponse("duplicate");
+                    }));
+    release.countDown();
+
+    assertThat(original.get(5, TimeUnit.SECONDS).message()).isEqualTo("original");
+    assertThat(duplicate.get(5, TimeUnit.SECONDS).message()).isEqualTo("original");
+    assertThat(calls).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("Ключ, закоммиченный другим узлом, отдает его результат")
+  void execute_UniqueViolationReturnsStoredResult() {
+    when(repository.findByUserIdAndIdempotencyKey(userId, "k"))
+        .thenReturn(Optional.empty())
+        .thenReturn(
+            Optional.of(
+                IdempotencyRecord.builder()
+                    .requestFingerprint("fp")
+                    .responseMessage("other node")
+                    .build()));
+
+    SucessActionResponse response =
+        idempotencyService.execute(
+            userId,
+            "k",
+            "fp",
+            () -> {
+              throw new DataIntegrityViolationException("uq_idempotencykeys_user_key");
+            });
+
+    assertThat(response.message()).isEqualTo("other node");
+  }
+}
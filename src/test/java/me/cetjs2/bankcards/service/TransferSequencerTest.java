@@ -0,0 +1,157 @@
+package me.cetjs2.bankcards.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import jakarta.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import me.cetjs2.bankcards.exception.InsufficientFundsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class TransferSequencerTest {
+
+  @Mock private PlatformTransactionManager transactionManager;
+  @Mock private TransactionStatus status;
+  @Mock private EntityManager entityManager;
+
+  private TransferSequencer sequencer;
+  private final ExecutorService clients = Executors.newFixedThreadPool(4);
+
+  @BeforeEach
+  void setUp() {
+    // Один шард: все переводы проходят через один поток
+    sequencer =
+        new TransferSequencer(
+            new TransactionTemplate(transactionManager), entityManager, "sequencer", 1, 100, 100);
+    sequencer.start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    sequencer.stop();
+    clients.shutdownNow();
+  }
+
+  @Test
+  @DisplayName("Переводы, накопившиеся в очереди шарда, коммитятся одной транзакцией")
+  void submit_GroupsQueuedTransfersIntoOneCommit() throws Exception {
+    when(transactionManager.getTransaction(any())).thenReturn(status);
+    when(status.createSavepoint()).thenAnswer(inv -> new Object());
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<String> first =
+        clients.submit(
+            () ->
+                sequencer.submit(
+                    UUID.randomUUID(),
+                    () -> {
+                      entered.countDown();
+                      await(release);
+                      return "first";
+                    }));
+    assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+    // Пока поток шарда занят, в очередь встают еще три перевода
+    List<Future<String>> queued = new ArrayList<>();
+    List<Thread> waiting = Collections.synchronizedList(new ArrayList<>());
+    for (int i = 0; i < 3; i++) {
+      String name = "queued-" + i;
+      queued.add(
+          clients.submit(
+              () -> {
+                waiting.add(Thread.currentThread());
+                return sequencer.submit(UUID.randomUUID(), () -> name);
+              }));
+    }
+    awaitParked(waiting, 3);
+    release.countDown();
+
+    assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("first");
+    for (int i = 0; i < 3; i++) {
+      assertThat(queued.get(i).get(5, TimeUnit.SECONDS)).isEqualTo("queued-" + i);
+    }
+    verify(transactionManager, times(2)).getTransaction(any());
+    verify(transactionManager, times(2)).commit(status);
+    verify(status, times(4)).createSavepoint();
+  }
+
+  @Test
+  @DisplayName("Отказ одного перевода откатывает только его точку сохранения")
+  void submit_FailedTransferRollsBackToSavepoint() throws Exception {
+    when(transactionManager.getTransaction(any())).thenReturn(status);
+    Object savepoint = new Object();
+    when(status.createSavepoint()).thenReturn(savepoint);
+
+    assertThatThrownBy(
+            () ->
+                sequencer.submit(
+                    UUID.randomUUID(),
+                    () -> {
+                      throw new InsufficientFundsException();
+                    }))
+        .isInstanceOf(InsufficientFundsException.class);
+
+    verify(status).rollbackToSavepoint(savepoint);
+    verify(entityManager).clear();
+    verify(transactionManager).commit(status);
+    verify(transactionManager, never()).rollback(any());
+  }
+
+  @Test
+  @DisplayName("Режим sync: потоки шардов не запускаются")
+  void syncMode_Disabled() {
+    TransferSequencer sync =
+        new TransferSequencer(
+            new TransactionTemplate(transactionManager), entityManager, "sync", 1, 100, 100);
+    sync.start();
+
+    assertThat(sync.isEnabled()).isFalse();
+    verifyNoInteractions(transactionManager);
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  // Клиенты "припаркованы" на ожидании результата = их переводы уже в очереди
+  private static void awaitParked(List<Thread> threads, int count) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      List<Thread> snapshot;
+      synchronized (threads) {
+        snapshot = new ArrayList<>(threads);
+      }
+      if (snapshot.size() == count
+          && snapshot.stream().allMatch(t -> t.getState() == Thread.State.WAITING)) {
+        return;
+      }
+      Thread.sleep(10);
+    }
+    throw new AssertionError("Переводы не встали в очередь");
+  }
+}
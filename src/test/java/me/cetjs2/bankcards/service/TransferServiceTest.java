@@ -6,32 +6,65 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import me.cetjs2.bankcards.dto.BatchTransferMode;
+import me.cetjs2.bankcards.dto.BatchTransferRequest;
+import me.cetjs2.bankcards.dto.BatchTransferResponse;
 import me.cetjs2.bankcards.dto.SucessActionResponse;
+import me.cetjs2.bankcards.dto.TransferDirection;
+import me.cetjs2.bankcards.dto.TransferHistoryResponse;
+import me.cetjs2.bankcards.dto.TransferItemStatus;
 import me.cetjs2.bankcards.dto.TransferRequest;
 import me.cetjs2.bankcards.entity.Card;
 import me.cetjs2.bankcards.entity.CardStatus;
+import me.cetjs2.bankcards.entity.IdempotencyRecord;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.entity.TransferRecord;
+import me.cetjs2.bankcards.entity.TransferStatus;
 import me.cetjs2.bankcards.entity.User;
 import me.cetjs2.bankcards.exception.CardNotFoundException;
 import me.cetjs2.bankcards.exception.CardPermissionDeniedException;
 import me.cetjs2.bankcards.exception.InsufficientFundsException;
+import me.cetjs2.bankcards.exception.InvalidCursorException;
 import me.cetjs2.bankcards.repository.CardRepository;
+import me.cetjs2.bankcards.repository.CardRepository.CardNumberView;
+import me.cetjs2.bankcards.repository.LedgerEntryRepository;
+import me.cetjs2.bankcards.repository.TransferRecordRepository;
+import me.cetjs2.bankcards.repository.TransferRecordRepository.TransferHistoryRow;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
 import me.cetjs2.bankcards.util.CardUtil;
+import me.cetjs2.bankcards.util.CursorCodec;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @ExtendWith(MockitoExtension.class)
 class TransferServiceTest {
 
   @Mock private CardRepository cardRepository;
+  @Mock private LedgerEntryRepository ledgerEntryRepository;
+  @Mock private CardLedgerService cardLedgerService;
   @Mock private CardUtil cardUtil;
   @Mock private UserService userService;
+  @Mock private IdempotencyService idempotencyService;
+  @Mock private TransactionTemplate transactionTemplate;
+  @Mock private TransferSequencer transferSequencer;
+  @Mock private TransferRecordRepository transferRecordRepository;
+  @Mock private ApplicationEventPublisher eventPublisher;
 
   @InjectMocks private TransferService transferService;
 
@@ -39,12 +72,20 @@ class TransferServiceTest {
   private Card cardFrom;
   private Card cardTo;
   private TransferRequest validRequest;
+  private final LocalDate monthStart = YearMonth.now().atDay(1);
 
   @BeforeEach
+  @SuppressWarnings("unchecked")
   void setUp() {
-    testUser = User.builder().userName("ivan_gold").build();
-    UUID fromId = UUID.randomUUID();
-    UUID toId = UUID.randomUUID();
+    // Перевод без ключа выполняется своей транзакцией через TransactionTemplate
+    lenient()
+        .when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            inv -> ((TransactionCallback<Object>) inv.getArgument(0)).doInTransaction(null));
+    testUser = User.builder().id(UUID.randomUUID()).userName("ivan_gold").role(Role.USER).build();
+    // Отправитель заведомо "меньше" получателя в порядке блокировки
+    UUID fromId = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    UUID toId = UUID.fromString("ffffffff-0000-0000-0000-000000000002");
 
     cardFrom =
         Card.builder()
@@ -65,99 +106,411 @@ class TransferServiceTest {
             .build();
 
     validRequest = new TransferRequest(fromId, toId, new BigDecimal("500.00"));
+    lenient().when(userService.getCurrentUser()).thenReturn(AuthenticatedUser.from(testUser));
+  }
+
+  private CardNumberView numberView(Card card) {
+    return new CardNumberView() {
+      @Override
+      public UUID getId() {
+        return card.getId();
+      }
+
+      @Override
+      public String getCardNumber() {
+        return card.getCardNumber();
+      }
+    };
   }
 
   @Test
   @DisplayName("Успешный перевод между своими картами")
   void transferMoney_Success() {
     // GIVEN
-    when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
-    when(cardRepository.findById(cardTo.getId())).thenReturn(Optional.of(cardTo));
-    when(userService.getCurrentUser()).thenReturn(testUser);
-
-    // Проверка владения
-    when(cardRepository.existsByIdAndOwnerUserName(cardFrom.getId(), testUser.getUsername()))
-        .thenReturn(true);
-    when(cardRepository.existsByIdAndOwnerUserName(cardTo.getId(), testUser.getUsername()))
-        .thenReturn(true);
-
+    BigDecimal sum = validRequest.sum();
+    when(cardRepository.debit(cardFrom.getId(), testUser.getId(), sum, monthStart)).thenReturn(1);
+    when(ledgerEntryRepository.appendCredit(
+            eq(cardTo.getId()), eq(testUser.getId()), eq(sum), anyInt(), eq(monthStart)))
+        .thenReturn(1);
+    when(cardRepository.findByIdIn(any()))
+        .thenReturn(List.of(numberView(cardFrom), numberView(cardTo)));
     when(cardUtil.maskCardNumber(anyString())).thenReturn("XXXX-XXXX");
 
     // WHEN
-    SucessActionResponse response = transferService.transferMoney(validRequest);
+    SucessActionResponse response = transferService.transferMoney(validRequest, null);
 
     // THEN
     assertThat(response.message()).contains("500.00");
-
-    // Проверяем списание (1000 - 500 = 500)
-    verify(cardRepository)
+    // Сущности не загружаются и не сохраняются целиком
+    verify(cardRepository, never()).findById(any());
+    verify(cardRepository, never()).save(any());
+    // Перевод попадает в историю той же транзакцией
+    verify(transferRecordRepository)
         .save(
             argThat(
-                c ->
-                    c.getId().equals(cardFrom.getId())
-                        && c.getBalance().compareTo(new BigDecimal("500.00")) == 0));
+                r ->
+                    r.getStatus() == TransferStatus.COMPLETED
+                        && r.getFromCardId().equals(cardFrom.getId())
+                        && r.getOwnerId().equals(testUser.getId())));
+    // Представления обеих карт сбрасываются после коммита
+    verify(eventPublisher)
+        .publishEvent(new CardsChangedEvent(List.of(cardFrom.getId(), cardTo.getId())));
+  }
 
-    // Проверяем зачисление (100 + 500 = 600)
-    verify(cardRepository)
-        .save(
-            argThat(
-                c ->
-                    c.getId().equals(cardTo.getId())
-                        && c.getBalance().compareTo(new BigDecimal("600.00")) == 0));
+  @Test
+  @DisplayName("Строки блокируются в порядке id независимо от направления перевода")
+  void transferMoney_LocksInIdOrder() {
+    // Обратный перевод: получатель "меньше" отправителя
+    TransferRequest reverse =
+        new TransferRequest(cardTo.getId(), cardFrom.getId(), new BigDecimal("50.00"));
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(1);
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(1);
+
+    transferService.transferMoney(reverse, null);
+
+    InOrder inOrder = inOrder(cardRepository, ledgerEntryRepository);
+    inOrder
+        .verify(ledgerEntryRepository)
+        .appendCredit(
+            eq(cardFrom.getId()),
+            eq(testUser.getId()),
+            eq(reverse.sum()),
+            anyInt(),
+            eq(monthStart));
+    inOrder
+        .verify(cardRepository)
+        .debit(cardTo.getId(), testUser.getId(), reverse.sum(), monthStart);
   }
 
   @Test
   @DisplayName("Ошибка: карта не найдена")
   void transferMoney_CardNotFound() {
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(0);
     when(cardRepository.findById(any())).thenReturn(Optional.empty());
 
-    assertThatThrownBy(() -> transferService.transferMoney(validRequest))
+    assertThatThrownBy(() -> transferService.transferMoney(validRequest, null))
         .isInstanceOf(CardNotFoundException.class);
   }
 
   @Test
   @DisplayName("Ошибка: попытка перевода с чужой карты")
   void transferMoney_PermissionDenied_NotOwner() {
-    when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
-    when(cardRepository.findById(cardTo.getId())).thenReturn(Optional.of(cardTo));
-    when(userService.getCurrentUser()).thenReturn(testUser);
+    User stranger = User.builder().id(UUID.randomUUID()).userName("stranger").build();
+    cardFrom = cardFrom.toBuilder().owner(stranger).build();
 
-    // Имитируем, что карта отправителя не принадлежит юзеру
-    when(cardRepository.existsByIdAndOwnerUserName(cardFrom.getId(), testUser.getUsername()))
-        .thenReturn(false);
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(0);
+    when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
 
-    assertThatThrownBy(() -> transferService.transferMoney(validRequest))
+    assertThatThrownBy(() -> transferService.transferMoney(validRequest, null))
         .isInstanceOf(CardPermissionDeniedException.class)
         .hasMessageContaining("принадлежат другому пользователю");
+    verify(ledgerEntryRepository, never()).appendCredit(any(), any(), any(), anyInt(), any());
   }
 
   @Test
   @DisplayName("Ошибка: одна из карт заблокирована")
   void transferMoney_PermissionDenied_CardBlocked() {
-    cardFrom = cardFrom.toBuilder().cardStatus(CardStatus.BLOCKED).build();
+    cardTo = cardTo.toBuilder().cardStatus(CardStatus.BLOCKED).build();
 
-    when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(1);
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(0);
     when(cardRepository.findById(cardTo.getId())).thenReturn(Optional.of(cardTo));
-    when(userService.getCurrentUser()).thenReturn(testUser);
-    when(cardRepository.existsByIdAndOwnerUserName(any(), any())).thenReturn(true);
 
-    assertThatThrownBy(() -> transferService.transferMoney(validRequest))
+    assertThatThrownBy(() -> transferService.transferMoney(validRequest, null))
         .isInstanceOf(CardPermissionDeniedException.class)
         .hasMessageContaining("заблокированы");
   }
 
+  @Test
+  @DisplayName("Ошибка: срок карты истек, хотя ночная задача еще не сменила статус")
+  void transferMoney_PermissionDenied_ExpiredByDate() {
+    cardFrom = cardFrom.toBuilder().expirationDate(YearMonth.now().minusMonths(1)).build();
+
+    // Срок проверяет сам запрос списания: с началом текущего месяца строка не проходит
+    when(cardRepository.debit(cardFrom.getId(), testUser.getId(), validRequest.sum(), monthStart))
+        .thenReturn(0);
+    when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
+
+    assertThatThrownBy(() -> transferService.transferMoney(validRequest, null))
+        .isInstanceOf(CardPermissionDeniedException.class)
+        .hasMessageContaining("просрочены");
+    assertThat(cardFrom.getCardStatus()).isEqualTo(CardStatus.ACTIVE);
+    verify(ledgerEntryRepository, never()).appendCredit(any(), any(), any(), anyInt(), any());
+  }
+
+  @Test
+  @DisplayName("Списание сворачивает накопленные зачисления, если снимка не хватает")
+  void transferMoney_FoldsPendingCreditsBeforeRetry() {
+    when(cardRepository.debit(cardFrom.getId(), testUser.getId(), validRequest.sum(), monthStart))
+        .thenReturn(0)
+        .thenReturn(1);
+    when(cardLedgerService.foldIntoSnapshot(cardFrom.getId())).thenReturn(true);
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(1);
+
+    transferService.transferMoney(validRequest, null);
+
+    verify(cardRepository, times(2))
+        .debit(cardFrom.getId(), testUser.getId(), validRequest.sum(), monthStart);
+    verify(cardRepository, never()).findById(any());
+  }
+
   @Test
   @DisplayName("Ошибка: недостаточно средств")
   void transferMoney_InsufficientFunds() {
     TransferRequest expensiveRequest =
         new TransferRequest(cardFrom.getId(), cardTo.getId(), new BigDecimal("5000.00"));
 
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(0);
     when(cardRepository.findById(cardFrom.getId())).thenReturn(Optional.of(cardFrom));
-    when(cardRepository.findById(cardTo.getId())).thenReturn(Optional.of(cardTo));
-    when(userService.getCurrentUser()).thenReturn(testUser);
-    when(cardRepository.existsByIdAndOwnerUserName(any(), any())).thenReturn(true);
 
-    assertThatThrownBy(() -> transferService.transferMoney(expensiveRequest))
+    assertThatThrownBy(() -> transferService.transferMoney(expensiveRequest, null))
         .isInstanceOf(InsufficientFundsException.class);
+    verify(ledgerEntryRepository, never()).appendCredit(any(), any(), any(), anyInt(), any());
+  }
+
+  @Test
+  @DisplayName("Пакет BEST_EFFORT: выполнимые переводы применяются, остальные отклоняются")
+  void transferBatch_BestEffort() {
+    when(cardRepository.findOwnedForUpdate(any(), eq(testUser.getId())))
+        .thenReturn(List.of(cardFrom, cardTo));
+    // На карте-получателе 20.00 еще не свернуто из журнала
+    when(cardLedgerService.currentBalance(any(), any()))
+        .thenAnswer(
+            inv -> {
+              Card card = inv.getArgument(0);
+              return card == cardTo
+                  ? card.getBalance().add(new BigDecimal("20.00"))
+                  : card.getBalance();
+            });
+    var request =
+        new BatchTransferRequest(
+            List.of(
+                new TransferRequest(cardFrom.getId(), cardTo.getId(), new BigDecimal("600.00")),
+                new TransferRequest(cardFrom.getId(), cardTo.getId(), new BigDecimal("600.00")),
+                new TransferRequest(cardTo.getId(), cardFrom.getId(), new BigDecimal("50.00"))),
+            BatchTransferMode.BEST_EFFORT);
+
+    BatchTransferResponse response = transferService.transferBatch(request);
+
+    assertThat(response.applied()).isEqualTo(2);
+    assertThat(response.rejected()).isEqualTo(1);
+    assertThat(response.results().get(1).status()).isEqualTo(TransferItemStatus.REJECTED);
+    // Снимки меняются на итоговую разницу: 1000 - 600 + 50 = 450 и 100 + 600 - 50 = 650
+    verify(cardRepository)
+        .saveAll(
+            argThat(
+                (List<Card> cards) ->
+                    cards.size() == 2
+                        && cards.stream()
+                            .allMatch(
+                                c ->
+                                    c.getBalance()
+                                            .compareTo(
+                                                c.getId().equals(cardFrom.getId())
+                                                    ? new BigDecimal("450.00")
+                                                    : new BigDecimal("650.00"))
+                                        == 0)));
+    // В историю - только выполненные переводы пакета
+    verify(transferRecordRepository)
+        .saveAll(argThat((List<TransferRecord> records) -> records.size() == 2));
+  }
+
+  @Test
+  @DisplayName("Пакет BEST_EFFORT: чужие и несуществующие карты определяются одним запросом")
+  void transferBatch_BestEffort_ResolvesMissingCardsAtOnce() {
+    UUID foreignCardId = UUID.randomUUID();
+    UUID unknownCardId = UUID.randomUUID();
+    when(cardRepository.findOwnedForUpdate(any(), eq(testUser.getId())))
+        .thenReturn(List.of(cardFrom, cardTo));
+    when(cardLedgerService.currentBalance(any(), any()))
+        .thenAnswer(inv -> ((Card) inv.getArgument(0)).getBalance());
+    when(cardRepository.findExistingIds(Set.of(foreignCardId, unknownCardId)))
+        .thenReturn(Set.of(foreignCardId));
+    var request =
+        new BatchTransferRequest(
+            List.of(
+                new TransferRequest(cardFrom.getId(), foreignCardId, BigDecimal.TEN),
+                new TransferRequest(cardFrom.getId(), unknownCardId, BigDecimal.TEN),
+                new TransferRequest(cardFrom.getId(), foreignCardId, BigDecimal.ONE)),
+            BatchTransferMode.BEST_EFFORT);
+
+    BatchTransferResponse response = transferService.transferBatch(request);
+
+    assertThat(response.rejected()).isEqualTo(3);
+    assertThat(response.results().get(0).message()).contains("другому пользователю");
+    assertThat(response.results().get(1).message()).isEqualTo("Card not found");
+    verify(cardRepository).findExistingIds(any());
+    verify(cardRepository, never()).existsById(any());
+  }
+
+  @Test
+  @DisplayName("Пакет ALL_OR_NOTHING: первая ошибка отменяет весь пакет")
+  void transferBatch_AllOrNothing_Rejects() {
+    UUID foreignCardId = UUID.randomUUID();
+    when(cardRepository.findOwnedForUpdate(any(), eq(testUser.getId())))
+        .thenReturn(List.of(cardFrom, cardTo));
+    when(cardLedgerService.currentBalance(any(), any()))
+        .thenAnswer(inv -> ((Card) inv.getArgument(0)).getBalance());
+    when(cardRepository.findExistingIds(Set.of(foreignCardId))).thenReturn(Set.of(foreignCardId));
+    var request =
+        new BatchTransferRequest(
+            List.of(
+                new TransferRequest(cardFrom.getId(), cardTo.getId(), BigDecimal.TEN),
+                new TransferRequest(cardFrom.getId(), foreignCardId, BigDecimal.TEN)),
+            null);
+
+    assertThatThrownBy(() -> transferService.transferBatch(request))
+        .isInstanceOf(CardPermissionDeniedException.class)
+        .hasMessageContaining("Перевод #1");
+    verify(cardRepository, never()).saveAll(any());
+    verify(ledgerEntryRepository, never()).saveAll(any());
+  }
+
+  @Test
+  @DisplayName("Idempotency-Key: перевод выполняется через хранилище ключей в одной транзакции")
+  @SuppressWarnings("unchecked")
+  void transferMoney_WithIdempotencyKey() {
+    IdempotencyRecord record = IdempotencyRecord.builder().idempotencyKey("key-1").build();
+    when(idempotencyService.execute(eq(testUser.getId()), eq("key-1"), anyString(), any()))
+        .thenAnswer(inv -> ((java.util.function.Supplier<Object>) inv.getArgument(3)).get());
+    when(idempotencyService.reserve(eq(testUser.getId()), eq("key-1"), anyString()))
+        .thenReturn(record);
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(1);
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(1);
+
+    SucessActionResponse response = transferService.transferMoney(validRequest, "key-1");
+
+    assertThat(response.message()).contains("500.00");
+    verify(idempotencyService).complete(record, response);
+  }
+
+  @Test
+  @DisplayName("Без Idempotency-Key хранилище ключей не используется")
+  void transferMoney_WithoutIdempotencyKey() {
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(1);
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(1);
+
+    transferService.transferMoney(validRequest, null);
+
+    verifyNoInteractions(idempotencyService);
+  }
+
+  @Test
+  @DisplayName("Режим sequencer: единица работы с ключом уходит в шард карты списания")
+  @SuppressWarnings("unchecked")
+  void transferMoney_Sequencer() {
+    IdempotencyRecord record = IdempotencyRecord.builder().idempotencyKey("key-1").build();
+    when(transferSequencer.isEnabled()).thenReturn(true);
+    when(transferSequencer.submit(eq(cardFrom.getId()), any()))
+        .thenAnswer(inv -> ((java.util.function.Supplier<Object>) inv.getArgument(1)).get());
+    when(idempotencyService.execute(eq(testUser.getId()), eq("key-1"), anyString(), any()))
+        .thenAnswer(inv -> ((java.util.function.Supplier<Object>) inv.getArgument(3)).get());
+    when(idempotencyService.reserve(eq(testUser.getId()), eq("key-1"), anyString()))
+        .thenReturn(record);
+    when(cardRepository.debit(any(), any(), any(), any())).thenReturn(1);
+    when(ledgerEntryRepository.appendCredit(any(), any(), any(), anyInt(), any())).thenReturn(1);
+
+    SucessActionResponse response = transferService.transferMoney(validRequest, "key-1");
+
+    // Резерв ключа, перевод и сохранение ответа - в одной единице работы шарда
+    verify(idempotencyService).complete(record, response);
+    verifyNoInteractions(transactionTemplate);
+  }
+
+  @Test
+  @DisplayName("История: лишняя строка дает курсор следующей страницы, номера маскируются")
+  void getCardTransfers_FirstPage() {
+    LocalDateTime now = LocalDateTime.now();
+    TransferHistoryRow newest = historyRow(cardFrom.getId(), cardTo.getId(), now);
+    TransferHistoryRow older = historyRow(cardTo.getId(), cardFrom.getId(), now.minusMinutes(1));
+    TransferHistoryRow extra = historyRow(cardFrom.getId(), cardTo.getId(), now.minusMinutes(2));
+    when(cardRepository.existsByIdAndOwnerUserName(cardFrom.getId(), "ivan_gold")).thenReturn(true);
+    when(transferRecordRepository.findCardHistory(eq(cardFrom.getId()), any(), any(), eq(3)))
+        .thenReturn(List.of(newest, older, extra));
+    when(cardRepository.findByIdIn(any()))
+        .thenReturn(List.of(numberView(cardFrom), numberView(cardTo)));
+    when(cardUtil.maskCardNumber("1111222233334444")).thenReturn("**** **** **** 4444");
+    when(cardUtil.maskCardNumber("5555666677778888")).thenReturn("**** **** **** 8888");
+
+    TransferHistoryResponse page =
+        transferService.getCardTransfers(cardFrom.getId(), null, 2, "ivan_gold", false);
+
+    assertThat(page.items()).hasSize(2);
+    assertThat(page.items().get(0).direction()).isEqualTo(TransferDirection.OUTGOING);
+    assertThat(page.items().get(0).toCardNumber()).isEqualTo("**** **** **** 8888");
+    assertThat(page.items().get(1).direction()).isEqualTo(TransferDirection.INCOMING);
+    // Курсор указывает на последнюю отданную строку, а не на лишнюю
+    CursorCodec.Position next = CursorCodec.decode(page.nextCursor());
+    assertThat(next.id()).isEqualTo(older.getId());
+    assertThat(next.date()).isEqualTo(older.getCreatedDate());
+  }
+
+  @Test
+  @DisplayName("История: курсор передается в запрос, последняя страница без курсора")
+  void getCardTransfers_NextPage() {
+    LocalDateTime date = LocalDateTime.of(2026, 10, 1, 12, 30, 15, 123_456_000);
+    UUID lastId = UUID.randomUUID();
+    when(cardRepository.existsByIdAndOwnerUserName(cardFrom.getId(), "ivan_gold")).thenReturn(true);
+    when(transferRecordRepository.findCardHistory(cardFrom.getId(), date, lastId, 21))
+        .thenReturn(List.of());
+
+    TransferHistoryResponse page =
+        transferService.getCardTransfers(
+            cardFrom.getId(), CursorCodec.encode(date, lastId), 20, "ivan_gold", false);
+
+    assertThat(page.items()).isEmpty();
+    assertThat(page.nextCursor()).isNull();
+  }
+
+  @Test
+  @DisplayName("История чужой карты недоступна")
+  void getCardTransfers_ForeignCard() {
+    when(cardRepository.existsByIdAndOwnerUserName(cardTo.getId(), "ivan_gold")).thenReturn(false);
+    when(cardRepository.existsById(cardTo.getId())).thenReturn(true);
+
+    assertThatThrownBy(
+            () -> transferService.getCardTransfers(cardTo.getId(), null, 20, "ivan_gold", false))
+        .isInstanceOf(CardPermissionDeniedException.class);
+    verifyNoInteractions(transferRecordRepository);
+  }
+
+  @Test
+  @DisplayName("История: испорченный курсор - ошибка клиента")
+  void getCardTransfers_InvalidCursor() {
+    assertThatThrownBy(
+            () ->
+                transferService.getCardTransfers(
+                    cardFrom.getId(), "not-a-cursor", 20, "admin", true))
+        .isInstanceOf(InvalidCursorException.class);
+  }
+
+  private TransferHistoryRow historyRow(UUID from, UUID to, LocalDateTime createdDate) {
+    UUID id = UUID.randomUUID();
+    return new TransferHistoryRow() {
+      @Override
+      public UUID getId() {
+        return id;
+      }
+
+      @Override
+      public UUID getFromCardId() {
+        return from;
+      }
+
+      @Override
+      public UUID getToCardId() {
+        return to;
+      }
+
+      @Override
+      public BigDecimal getAmount() {
+        return new BigDecimal("10.00");
+      }
+
+      @Override
+      public LocalDateTime getCreatedDate() {
+        return createdDate;
+      }
+    };
   }
 }
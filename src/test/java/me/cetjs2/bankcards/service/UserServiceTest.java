@@ -4,7 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import me.cetjs2.bankcards.entity.User;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -36,7 +38,8 @@ class UserServiceTest {
   @DisplayName("Должен вернуть текущего пользователя, если он авторизован")
   void getCurrentUser_ShouldReturnUser_WhenAuthenticated() {
     // GIVEN
-    User expectedUser = User.builder().userName("test_user").build();
+    AuthenticatedUser expectedUser =
+        new AuthenticatedUser(UUID.randomUUID(), "test_user", Role.USER);
     Authentication authentication = mock(Authentication.class);
 
     when(authentication.isAuthenticated()).thenReturn(true);
@@ -44,7 +47,7 @@ class UserServiceTest {
     when(securityContext.getAuthentication()).thenReturn(authentication);
 
     // WHEN
-    User actualUser = userService.getCurrentUser();
+    AuthenticatedUser actualUser = userService.getCurrentUser();
 
     // THEN
     assertThat(actualUser).isNotNull();
@@ -58,7 +61,7 @@ class UserServiceTest {
     when(securityContext.getAuthentication()).thenReturn(null);
 
     // WHEN
-    User actualUser = userService.getCurrentUser();
+    AuthenticatedUser actualUser = userService.getCurrentUser();
 
     // THEN
     assertThat(actualUser).isNull();
@@ -73,7 +76,7 @@ class UserServiceTest {
     when(securityContext.getAuthentication()).thenReturn(authentication);
 
     // WHEN
-    User actualUser = userService.getCurrentUser();
+    AuthenticatedUser actualUser = userService.getCurrentUser();
 
     // THEN
     assertThat(actualUser).isNull();
@@ -0,0 +1,158 @@
+package me.cetjs2.bankcards.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.YearMonth;
+import java.util.Optional;
+import java.util.UUID;
+import me.cetjs2.bankcards.dto.CardListOrder;
+import me.cetjs2.bankcards.entity.JobLease;
+import me.cetjs2.bankcards.exception.JobLeaseLostException;
+import me.cetjs2.bankcards.service.CardExpiryChunk;
+import me.cetjs2.bankcards.service.CardService;
+import me.cetjs2.bankcards.service.JobLeaseService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class CardExpirySchedulerTest {
+
+  private CardService cardService;
+  private JobLeaseService jobLeaseService;
+  private SimpleMeterRegistry meterRegistry;
+  private CardExpiryScheduler scheduler;
+
+  private final CursorCodec.CardPosition position =
+      new CursorCodec.CardPosition(
+          CardListOrder.EXPIRATION_DATE, YearMonth.of(2025, 3), UUID.randomUUID());
+
+  @BeforeEach
+  void setUp() {
+    cardService = mock(CardService.class);
+    jobLeaseService = mock(JobLeaseService.class);
+    meterRegistry = new SimpleMeterRegistry();
+    // Транзакция порции: колбэк выполняется сразу
+    TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+    when(transactionTemplate.execute(any()))
+        .thenAnswer(
+            inv ->
+                inv.<TransactionCallback<?>>getArgument(0)
+                    .doInTransaction(mock(TransactionStatus.class)));
+    scheduler =
+        new CardExpiryScheduler(
+            cardService, jobLeaseService, transactionTemplate, meterRegistry, 2);
+  }
+
+  private void leaseWithCheckpoint(String checkpoint) {
+    when(jobLeaseService.tryAcquire(eq(CardExpiryScheduler.JOB), anyString()))
+        .thenReturn(
+            Optional.of(
+                JobLease.builder().name(CardExpiryScheduler.JOB).checkpoint(checkpoint).build()));
+  }
+
+  @Test
+  @DisplayName("Окно выполняет другой узел: порции не запускаются")
+  void leaseHeldElsewhere_Skips() {
+    when(jobLeaseService.tryAcquire(eq(CardExpiryScheduler.JOB), anyString()))
+        .thenReturn(Optional.empty());
+
+    scheduler.checkCardsExpiry();
+
+    verifyNoInteractions(cardService);
+    verify(jobLeaseService, never()).finish(anyString());
+  }
+
+  @Test
+  @DisplayName("Порции идут до конца, каждая пишет checkpoint, окно завершается")
+  void runsChunksWithCheckpoints() {
+    leaseWithCheckpoint(null);
+    when(cardService.expireCardsChunk(any(), isNull(), eq(2)))
+        .thenReturn(new CardExpiryChunk(2, position));
+    when(cardService.expireCardsChunk(any(), eq(position), eq(2)))
+        .thenReturn(new CardExpiryChunk(1, null));
+
+    scheduler.checkCardsExpiry();
+
+    verify(jobLeaseService)
+        .checkpoint(
+            CardExpiryScheduler.JOB,
+            CursorCodec.encode(position.order(), position.expirationDate(), position.id()),
+            2);
+    verify(jobLeaseService).checkpoint(CardExpiryScheduler.JOB, null, 1);
+    verify(jobLeaseService).finish(CardExpiryScheduler.JOB);
+    assertThat(meterRegistry.get("cards.expiry.expired").counter().count()).isEqualTo(3);
+    assertThat(meterRegistry.get("cards.expiry.progress").gauge().value()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("Перехваченное окно продолжается с checkpoint упавшего узла")
+  void resumesFromCheckpoint() {
+    leaseWithCheckpoint(
+        CursorCodec.encode(position.order(), position.expirationDate(), position.id()));
+    when(cardService.expireCardsChunk(any(YearMonth.class), eq(position), eq(2)))
+        .thenReturn(new CardExpiryChunk(0, null));
+
+    scheduler.checkCardsExpiry();
+
+    verify(cardService, never()).expireCardsChunk(any(), isNull(), eq(2));
+    verify(jobLeaseService).finish(CardExpiryScheduler.JOB);
+  }
+
+  @Test
+  @DisplayName("Новое окно читает индекс только от последнего завершенного окна")
+  void startsFromCompletedWindow() {
+    when(jobLeaseService.tryAcquire(eq(CardExpiryScheduler.JOB), anyString()))
+        .thenReturn(
+            Optional.of(
+                JobLease.builder()
+                    .name(CardExpiryScheduler.JOB)
+                    .completedWindow("2026-09")
+                    .build()));
+    CursorCodec.CardPosition windowStart =
+        new CursorCodec.CardPosition(
+            CardListOrder.EXPIRATION_DATE, YearMonth.of(2026, 9), new UUID(0L, 0L));
+    when(cardService.expireCardsChunk(any(YearMonth.class), eq(windowStart), eq(2)))
+        .thenReturn(new CardExpiryChunk(1, null));
+
+    scheduler.checkCardsExpiry();
+
+    verify(cardService, never()).expireCardsChunk(any(), isNull(), eq(2));
+    verify(jobLeaseService).checkpoint(CardExpiryScheduler.JOB, null, 1);
+    verify(jobLeaseService).finish(CardExpiryScheduler.JOB);
+  }
+
+  @Test
+  @DisplayName("Ошибка порции освобождает аренду, потеря аренды - нет")
+  void failureReleasesLease() {
+    leaseWithCheckpoint(null);
+    when(cardService.expireCardsChunk(any(), isNull(), eq(2)))
+        .thenThrow(new IllegalStateException("db down"));
+
+    assertThatThrownBy(() -> scheduler.checkCardsExpiry())
+        .isInstanceOf(IllegalStateException.class);
+    verify(jobLeaseService).release(CardExpiryScheduler.JOB);
+
+    reset(jobLeaseService);
+    leaseWithCheckpoint(null);
+    when(cardService.expireCardsChunk(any(), isNull(), eq(2)))
+        .thenReturn(new CardExpiryChunk(2, position));
+    doThrow(new JobLeaseLostException(CardExpiryScheduler.JOB))
+        .when(jobLeaseService)
+        .checkpoint(anyString(), any(), eq(2L));
+
+    scheduler.checkCardsExpiry();
+
+    verify(jobLeaseService, never()).release(anyString());
+    verify(jobLeaseService, never()).finish(anyString());
+  }
+}
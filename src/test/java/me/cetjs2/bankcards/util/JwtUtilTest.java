@@ -0,0 +1,82 @@
+package me.cetjs2.bankcards.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+import me.cetjs2.bankcards.entity.Role;
+import me.cetjs2.bankcards.security.AuthenticatedUser;
+import me.cetjs2.bankcards.security.UserCredentials;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class JwtUtilTest {
+
+  private final JwtUtil jwtUtil = new JwtUtil(100);
+  private final UserCredentials user =
+      new UserCredentials(UUID.randomUUID(), "bcuser", "hash", Role.ADMIN, 3);
+
+  @Test
+  @DisplayName("Проверка токена возвращает claims, повтор отвечает тем же объектом из кэша")
+  void validate_CachesVerifiedToken() {
+    String token = jwtUtil.generateToken(user, UUID.randomUUID(), Instant.now().plusSeconds(60));
+
+    var first = jwtUtil.validate(token);
+    var second = jwtUtil.validate(token);
+
+    assertThat(first.getSubject()).isEqualTo("bcuser");
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  @DisplayName("Пользователь и версия токенов собираются из claims без обращения к БД")
+  void toPrincipal_FromClaims() {
+    UUID jti = UUID.randomUUID();
+    var claims = jwtUtil.validate(jwtUtil.generateToken(user, jti, Instant.now().plusSeconds(60)));
+
+    assertThat(jwtUtil.toPrincipal(claims))
+        .isEqualTo(new AuthenticatedUser(user.id(), "bcuser", Role.ADMIN));
+    assertThat(jwtUtil.extractTokenVersion(claims)).isEqualTo(3);
+    assertThat(claims.getId()).isEqualTo(jti.toString());
+  }
+
+  @Test
+  @DisplayName("Поддельная подпись не проходит и не попадает в кэш")
+  void validate_RejectsForeignSignature() {
+    String forged =
+        Jwts.builder()
+            .subject("bcadmin")
+            .expiration(new Date(System.currentTimeMillis() + 60_000))
+            .signWith(
+                Keys.hmacShaKeyFor(
+                    "another-secret-key-that-is-long-enough-for-hs256"
+                        .getBytes(StandardCharsets.UTF_8)))
+            .compact();
+
+    assertThatThrownBy(() -> jwtUtil.validate(forged)).isInstanceOf(JwtException.class);
+    assertThatThrownBy(() -> jwtUtil.validate(forged)).isInstanceOf(JwtException.class);
+  }
+
+  @Test
+  @DisplayName("Просроченный токен отклоняется")
+  void validate_RejectsExpired() {
+    String expired =
+        Jwts.builder()
+            .subject("bcuser")
+            .expiration(new Date(System.currentTimeMillis() - 1_000))
+            .signWith(
+                Keys.hmacShaKeyFor(
+                    "super-secret-key-that-must-be-very-long-and-secure-2026"
+                        .getBytes(StandardCharsets.UTF_8)))
+            .compact();
+
+    assertThatThrownBy(() -> jwtUtil.validate(expired)).isInstanceOf(ExpiredJwtException.class);
+  }
+}
@@ -0,0 +1,109 @@
+package me.cetjs2.bankcards.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+
+class StartupCatchUpRunnerTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private StartupCatchUpRunner runner;
+
+  @AfterEach
+  void tearDown() {
+    runner.shutdown();
+  }
+
+  private static AvailabilityChangeEvent<ReadinessState> readiness(ReadinessState state) {
+    return new AvailabilityChangeEvent<>(new Object(), state);
+  }
+
+  private static StartupCatchUpJob job(String name, Runnable work) {
+    return new StartupCatchUpJob() {
+      @Override
+      public String name() {
+        return name;
+      }
+
+      @Override
+      public void catchUp() {
+        work.run();
+      }
+    };
+  }
+
+  @Test
+  @DisplayName("Догоняющие задачи стартуют в фоне только после готовности и один раз")
+  void runsAfterReadinessOnce() throws Exception {
+    AtomicInteger runs = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(1);
+    String caller = Thread.currentThread().getName();
+    AtomicInteger onCallerThread = new AtomicInteger();
+    runner =
+        new StartupCatchUpRunner(
+            List.of(
+                job(
+                    "card-expiry",
+                    () -> {
+                      runs.incrementAndGet();
+                      if (Thread.currentThread().getName().equals(caller)) {
+                        onCallerThread.incrementAndGet();
+                      }
+                      done.countDown();
+                    })),
+            meterRegistry,
+            Duration.ZERO,
+            1);
+
+    runner.onReadiness(readiness(ReadinessState.REFUSING_TRAFFIC));
+    assertThat(runs).hasValue(0);
+
+    runner.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+    runner.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    runner.shutdown();
+    assertThat(runs).hasValue(1);
+    assertThat(onCallerThread).hasValue(0);
+  }
+
+  @Test
+  @DisplayName("Ошибка одной задачи не мешает остальным, время пишется с исходом")
+  void failureIsolatedAndMeasured() throws Exception {
+    CountDownLatch done = new CountDownLatch(1);
+    runner =
+        new StartupCatchUpRunner(
+            List.of(
+                job(
+                    "broken",
+                    () -> {
+                      throw new IllegalStateException("db down");
+                    }),
+                job("card-expiry", done::countDown)),
+            meterRegistry,
+            Duration.ZERO,
+            1);
+
+    runner.onReadiness(readiness(ReadinessState.ACCEPTING_TRAFFIC));
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    // Пул из одного потока: задачи идут по очереди, к завершению второй первая уже записана
+    assertThat(
+            meterRegistry
+                .get("startup.catch-up")
+                .tags("job", "broken", "outcome", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+}